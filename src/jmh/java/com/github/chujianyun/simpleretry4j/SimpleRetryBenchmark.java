@@ -0,0 +1,175 @@
+package com.github.chujianyun.simpleretry4j;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * 重试工具类的基准测试
+ * <p>
+ * 第一次就成功的路径上gc.alloc.rate.norm应当为0
+ * <p>
+ * mvn -Pjmh test-compile exec:exec -Djmh.benchmarks=SimpleRetryBenchmark
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 13:20
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimpleRetryBenchmark {
+
+    /**
+     * 预先创建的异常，避免测量填充异常栈的耗时
+     */
+    private static final RuntimeException FAILURE = new RuntimeException("benchmark");
+
+    @Param({"3"})
+    private int maxRetries;
+
+    @Param({"8"})
+    private int abortConditionNum;
+
+    private RetryPolicy retryPolicy;
+
+    private RetryPolicy conditionRetryPolicy;
+
+    private RetryPolicy classifierRetryPolicy;
+
+    private RetryPolicy exceptionRetryPolicy;
+
+    private Callable<Integer> success;
+
+    private Callable<Integer> failure;
+
+    private Consumer<Integer> consumer;
+
+    @Setup
+    public void setUp() {
+        // 失败路径会打印重试日志，基准测试时关闭
+        LogManager.getRootLogger().setLevel(Level.WARN);
+
+        retryPolicy = RetryPolicy.builder()
+                .maxRetries(maxRetries)
+                .build();
+
+        // 只有最后一个条件满足，每次都要遍历所有条件
+        RetryPolicy.Builder builder = RetryPolicy.builder().maxRetries(maxRetries);
+        for (int i = 1; i < abortConditionNum; i++) {
+            int bound = -i;
+            builder.abortCondition(result -> (Integer) result < bound);
+        }
+        builder.abortCondition(result -> (Integer) result >= 0);
+        conditionRetryPolicy = builder.build();
+
+        // 与上面等价的带类型的分类，按int判断不装箱
+        ResultClassifier.Builder<Integer> classifierBuilder = ResultClassifier.builder();
+        for (int i = 1; i < abortConditionNum; i++) {
+            int bound = -i;
+            classifierBuilder.whenInt(Integer::intValue, result -> result < bound, ResultDecision.ABORT);
+        }
+        classifierBuilder.whenInt(Integer::intValue, result -> result >= 0, ResultDecision.ABORT);
+        classifierRetryPolicy = RetryPolicy.builder()
+                .maxRetries(maxRetries)
+                .resultClassifier(classifierBuilder.otherwise(ResultDecision.RETRY).build())
+                .build();
+
+        // 都不匹配，每次失败都要判断是否是不重试的异常
+        exceptionRetryPolicy = RetryPolicy.builder()
+                .maxRetries(maxRetries)
+                .abortException(IOException.class)
+                .abortException(TimeoutException.class)
+                .abortException(IllegalArgumentException.class)
+                .abortException(IllegalStateException.class)
+                .abortException(UnsupportedOperationException.class)
+                .abortException(IndexOutOfBoundsException.class)
+                .abortException(ClassCastException.class)
+                .abortException(ArithmeticException.class)
+                .build();
+
+        Integer value = 1;
+        success = () -> value;
+        failure = () -> {
+            throw FAILURE;
+        };
+        consumer = data -> {
+        };
+    }
+
+    /**
+     * 第一次就成功（最常见的情况）
+     */
+    @Benchmark
+    public Integer successPath() throws Exception {
+        return SimpleRetryUtil.executeWithRetry(success, retryPolicy);
+    }
+
+    /**
+     * 无返回值的操作第一次就成功
+     */
+    @Benchmark
+    public void consumerSuccessPath() throws Exception {
+        SimpleRetryUtil.executeWithRetry(consumer, 1, retryPolicy);
+    }
+
+    /**
+     * 每次都失败，无延时重试maxRetries次后抛出
+     */
+    @Benchmark
+    public Exception failurePath() {
+        try {
+            SimpleRetryUtil.executeWithRetry(failure, retryPolicy);
+            return null;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    /**
+     * 每次都失败，每次失败都需要按多个不重试的异常分类
+     */
+    @Benchmark
+    public Exception abortExceptions() {
+        try {
+            SimpleRetryUtil.executeWithRetry(failure, exceptionRetryPolicy);
+            return null;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    /**
+     * 第一次就成功，但需要检查多个终止条件
+     */
+    @Benchmark
+    public Integer abortConditions() throws Exception {
+        return SimpleRetryUtil.executeWithRetry(success, conditionRetryPolicy);
+    }
+
+    /**
+     * 第一次就成功，按带类型的分类检查同样多的条件
+     */
+    @Benchmark
+    public Integer resultClassifier() throws Exception {
+        return SimpleRetryUtil.executeWithRetry(success, classifierRetryPolicy);
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.chujianyun.simpleretry4j;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 时间轮与ScheduledThreadPoolExecutor在大量未到期的定时任务下添加和取消的基准测试
+ * <p>
+ * 模拟大量并发的异步重试：每次操作添加一个几秒后到期的重试定时任务，随后因为尝试成功而取消。
+ * <p>
+ * mvn -Pjmh test-compile exec:exec -Djmh.benchmarks=TimerBenchmark
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-19 04:00
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class TimerBenchmark {
+
+    private static final Runnable NOOP = () -> {
+    };
+
+    @Param({"HashedWheelTimer", "ScheduledThreadPoolExecutor"})
+    private String timerType;
+
+    /**
+     * 测试期间一直存在的未到期的定时任务数
+     */
+    @Param({"0", "100000", "500000"})
+    private int pendingTimers;
+
+    private ScheduledExecutorService timer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("HashedWheelTimer".equals(timerType)) {
+            timer = HashedWheelTimer.builder().build();
+        } else {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+            executor.setRemoveOnCancelPolicy(true);
+            timer = executor;
+        }
+        for (int i = 0; i < pendingTimers; i++) {
+            timer.schedule(NOOP, 1, TimeUnit.HOURS);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        timer.shutdownNow();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean scheduleAndCancel() {
+        ScheduledFuture<?> future = timer.schedule(NOOP, ThreadLocalRandom.current().nextInt(1000, 5000), TimeUnit.MILLISECONDS);
+        return future.cancel(false);
+    }
+}
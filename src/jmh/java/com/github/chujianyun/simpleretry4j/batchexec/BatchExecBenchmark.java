@@ -0,0 +1,92 @@
+package com.github.chujianyun.simpleretry4j.batchexec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分批执行在不同批次大小和列表类型下的基准测试
+ * <p>
+ * mvn -Pjmh test-compile exec:exec -Djmh.benchmarks=BatchExecBenchmark
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 13:35
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchExecBenchmark {
+
+    @Param({"100000"})
+    private int size;
+
+    @Param({"10", "100", "1000"})
+    private int eachBatchNum;
+
+    @Param({"ArrayList", "LinkedList"})
+    private String listType;
+
+    private List<Integer> data;
+
+    private BatchExePolicy batchExePolicy;
+
+    private BatchExePolicy reuseBufferPolicy;
+
+    @Setup
+    public void setUp() {
+        data = "LinkedList".equals(listType) ? new LinkedList<>() : new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            data.add(i);
+        }
+        batchExePolicy = BatchExePolicy.builder()
+                .eachBatchNum(eachBatchNum)
+                .failPolicy(FailPolicy.ABORT_AND_THROW)
+                .build();
+        reuseBufferPolicy = BatchExePolicy.builder()
+                .eachBatchNum(eachBatchNum)
+                .failPolicy(FailPolicy.ABORT_AND_THROW)
+                .reuseBatchBuffer(true)
+                .build();
+    }
+
+    /**
+     * 每个批次遍历一次元素
+     */
+    @Benchmark
+    public void batchExec(Blackhole blackhole) throws Exception {
+        BatchExecUtil.batchExec(batch -> {
+            for (Integer item : batch) {
+                blackhole.consume(item);
+            }
+        }, data, batchExePolicy);
+    }
+
+    /**
+     * 复用缓冲区的流式执行
+     */
+    @Benchmark
+    public void batchExecIterator(Blackhole blackhole) throws Exception {
+        BatchExecUtil.batchExec(batch -> {
+            for (Integer item : batch) {
+                blackhole.consume(item);
+            }
+        }, data.iterator(), reuseBufferPolicy);
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.chujianyun.simpleretry4j.batchexec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分批切分的基准测试，耗时应随数据量线性增长
+ * <p>
+ * mvn -Pjmh test-compile exec:exec -Djmh.benchmarks=BatchSlicingBenchmark
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 12:30
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class BatchSlicingBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private int size;
+
+    @Param({"ArrayList", "LinkedList"})
+    private String listType;
+
+    @Param({"500"})
+    private int eachBatchNum;
+
+    private List<Integer> data;
+
+    private BatchExePolicy batchExePolicy;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = "LinkedList".equals(listType) ? new LinkedList<>() : new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            data.add(i);
+        }
+        batchExePolicy = BatchExePolicy.builder()
+                .eachBatchNum(eachBatchNum)
+                .failPolicy(FailPolicy.ABORT_AND_THROW)
+                .build();
+    }
+
+    @Benchmark
+    public void batchExec(Blackhole blackhole) throws Exception {
+        BatchExecUtil.batchExec(batch -> blackhole.consume(batch.get(batch.size() - 1)), data, batchExePolicy);
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.chujianyun.simpleretry4j.budget;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 重试预算在64个线程并发存取时的基准测试
+ * <p>
+ * mvn -Pjmh test-compile exec:exec -Djmh.benchmarks=RetryBudgetBenchmark
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 17:05
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RetryBudgetBenchmark {
+
+    private final RetryBudget retryBudget = RetryBudget.builder().build();
+
+    /**
+     * 成功的调用存入令牌
+     */
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(56)
+    public void deposit() {
+        retryBudget.deposit();
+    }
+
+    /**
+     * 失败的调用取出令牌
+     */
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(8)
+    public boolean withdraw() {
+        return retryBudget.tryWithdraw();
+    }
+}
@@ -0,0 +1,312 @@
+package com.github.chujianyun.simpleretry4j;
+
+import com.github.chujianyun.simpleretry4j.exception.BulkheadFullException;
+import com.github.chujianyun.simpleretry4j.exception.CircuitBreakerOpenException;
+import com.github.chujianyun.simpleretry4j.exception.ResultRejectedException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 单次异步重试的执行过程
+ * <p>
+ * 每次尝试完成后根据重试策略决定结束还是在定时器上调度下一次尝试，
+ * 重试间隔期间不占用线程。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 09:20
+ */
+@Slf4j
+class AsyncRetryExecutor<T> {
+
+    private final Supplier<CompletionStage<T>> supplier;
+
+    private final CompiledRetryPolicy retryPolicy;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+
+    /**
+     * 已重试次数，同一时刻只有一次尝试在执行，不需要同步
+     */
+    private int retryCount;
+
+    /**
+     * 上一次重试的延时
+     */
+    private long lastDelayMillis;
+
+    /**
+     * 上一次需要重试的异常，熔断时作为原因
+     */
+    private Exception lastFailure;
+
+    /**
+     * 总时长的截止时间
+     */
+    private long deadlineNanos;
+
+    /**
+     * 本次尝试的开始时间，只在设置了监听器时记录
+     */
+    private long attemptStartNanos;
+
+    /**
+     * 本次尝试获取舱壁许可的时间
+     */
+    private long permitNanos;
+
+    /**
+     * 已调度但还未执行的下一次尝试，用于结果被取消时撤销
+     */
+    private volatile Future<?> pendingAttempt;
+
+    AsyncRetryExecutor(Supplier<CompletionStage<T>> supplier, CompiledRetryPolicy retryPolicy, ScheduledExecutorService scheduler) {
+        this.supplier = supplier;
+        this.retryPolicy = retryPolicy;
+        this.scheduler = scheduler;
+        result.whenComplete((value, throwable) -> {
+            Future<?> pending = pendingAttempt;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+        });
+    }
+
+    /**
+     * 开始第一次尝试
+     */
+    CompletableFuture<T> start() {
+        if (retryPolicy.hasTimeLimit()) {
+            deadlineNanos = retryPolicy.deadlineNanos(System.nanoTime());
+        }
+        attempt();
+        return result;
+    }
+
+    private void attempt() {
+        pendingAttempt = null;
+        // 调用方已取消或已完成
+        if (result.isDone()) {
+            return;
+        }
+
+        // 熔断器打开时快速失败
+        try {
+            retryPolicy.acquirePermission(lastFailure);
+        } catch (CircuitBreakerOpenException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+
+        // 舱壁已满时快速失败，不等待许可以免阻塞定时器线程
+        try {
+            permitNanos = retryPolicy.tryAcquireBulkhead(retryCount + 1, lastFailure);
+        } catch (BulkheadFullException e) {
+            // 本次尝试没有执行，归还熔断器的许可
+            retryPolicy.releasePermission();
+            result.completeExceptionally(e);
+            return;
+        }
+
+        attemptStartNanos = retryPolicy.attemptStarted(retryCount + 1);
+        long timeoutNanos = 0;
+        if (retryPolicy.hasTimeLimit()) {
+            timeoutNanos = retryPolicy.attemptTimeoutNanos(deadlineNanos);
+            if (timeoutNanos <= 0) {
+                onAttemptFailure(new TimeoutException("没有剩余时间执行本次尝试"));
+                return;
+            }
+        }
+
+        CompletionStage<T> stage;
+        try {
+            stage = retryPolicy.isHedged()
+                    ? new HedgedAttempt<>(supplier, retryPolicy, scheduler, true).start()
+                    : supplier.get();
+        } catch (Throwable t) {
+            onAttemptFailure(t);
+            return;
+        }
+
+        if (stage == null) {
+            onAttemptFailure(new NullPointerException("异步操作返回的CompletionStage不能为空"));
+            return;
+        }
+
+        if (timeoutNanos > 0) {
+            awaitWithTimeout(stage, timeoutNanos);
+            return;
+        }
+        stage.whenComplete(this::onComplete);
+    }
+
+    /**
+     * 在定时器上设置本次尝试的超时，超时后尝试取消本次操作并按TimeoutException处理，之后操作的结果被忽略
+     */
+    private void awaitWithTimeout(CompletionStage<T> stage, long timeoutNanos) {
+        AtomicBoolean completed = new AtomicBoolean();
+        Future<?> timeoutTask;
+        try {
+            timeoutTask = scheduler.schedule(() -> {
+                if (completed.compareAndSet(false, true)) {
+                    if (stage instanceof Future) {
+                        ((Future<?>) stage).cancel(true);
+                    }
+                    onAttemptFailure(new TimeoutException("单次尝试超时"));
+                }
+            }, timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            retryPolicy.releaseBulkhead(permitNanos);
+            retryPolicy.releasePermission();
+            result.completeExceptionally(e);
+            return;
+        }
+
+        stage.whenComplete((value, throwable) -> {
+            if (completed.compareAndSet(false, true)) {
+                timeoutTask.cancel(false);
+                onComplete(value, throwable);
+            }
+        });
+    }
+
+    private void onComplete(T value, Throwable throwable) {
+        if (throwable == null) {
+            retryPolicy.releaseBulkhead(permitNanos);
+            retryPolicy.attemptSucceeded(retryCount + 1, attemptStartNanos);
+            onResult(value);
+        } else {
+            onAttemptFailure(unwrap(throwable));
+        }
+    }
+
+    private void onAttemptFailure(Throwable throwable) {
+        retryPolicy.releaseBulkhead(permitNanos);
+        retryPolicy.attemptFailed(retryCount + 1, throwable, attemptStartNanos);
+        onFailure(throwable);
+    }
+
+    private void onResult(T value) {
+        ResultDecision decision;
+        try {
+            decision = retryPolicy.classifyResult(value);
+        } catch (Exception e) {
+            // 与同步版本一致，判断条件抛出的异常按异常处理
+            onFailure(e);
+            return;
+        }
+
+        // 不可接受的返回值按不需要重试的异常处理
+        if (decision == ResultDecision.FAIL) {
+            onFailure(new ResultRejectedException(value));
+            return;
+        }
+
+        /* ---------------- 不需要重试的返回值 -------------- */
+        if (decision == ResultDecision.ABORT) {
+            retryPolicy.abortedByCondition(retryCount + 1, value);
+            retryPolicy.onSuccess();
+            result.complete(value);
+            return;
+        }
+
+        /* ---------------- 需要重试的返回值 -------------- */
+        retryPolicy.onFailure();
+        if (!scheduleNextAttempt(null)) {
+            retryPolicy.exhausted(retryCount, null);
+            result.complete(value);
+        }
+    }
+
+    private void onFailure(Throwable throwable) {
+        // 非Exception的错误（如Error）与同步版本一致，不重试
+        if (!(throwable instanceof Exception)) {
+            retryPolicy.onFailure();
+            result.completeExceptionally(throwable);
+            return;
+        }
+
+        /* ---------------- 不需要重试的异常 -------------- */
+        Exception e = (Exception) throwable;
+        if (retryPolicy.isAbortException(e)) {
+            retryPolicy.abortedByException(retryCount + 1, e);
+            retryPolicy.onAbortException();
+            result.completeExceptionally(e);
+            return;
+        }
+
+        /* ---------------- 需要重试的异常 -------------- */
+        retryPolicy.onFailure();
+        if (!scheduleNextAttempt(e)) {
+            retryPolicy.exhausted(retryCount, e);
+            result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 如果还有下一次重试则在定时器上调度
+     *
+     * @return 没有下一次重试时返回false，由调用方结束
+     */
+    private boolean scheduleNextAttempt(Exception failure) {
+        if (!retryPolicy.canRetry(++retryCount)) {
+            return false;
+        }
+
+        // 熔断器已打开则不再等待
+        try {
+            retryPolicy.checkPermitted(failure);
+        } catch (CircuitBreakerOpenException e) {
+            result.completeExceptionally(e);
+            return true;
+        }
+
+        long delayMillis = retryPolicy.nextDelayMillis(retryCount, lastDelayMillis);
+        // 等待之后已经超过总时长则不再重试
+        if (!retryPolicy.canMeetDeadline(deadlineNanos, delayMillis)) {
+            return false;
+        }
+        // 重试预算不足则不再重试
+        if (!retryPolicy.tryAcquireRetry()) {
+            return false;
+        }
+        lastFailure = failure;
+        lastDelayMillis = delayMillis;
+        if (log.isDebugEnabled()) {
+            log.debug("第{}次重试，延时{}毫秒", retryCount, delayMillis);
+        }
+        retryPolicy.retryScheduled(retryCount, delayMillis);
+
+        // 即使不延时也交给定时器执行，避免同步完成的操作层层递归
+        try {
+            pendingAttempt = scheduler.schedule(this::attempt, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+            return true;
+        }
+        if (result.isDone()) {
+            pendingAttempt.cancel(false);
+        }
+        return true;
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        if ((throwable instanceof CompletionException || throwable instanceof ExecutionException)
+                && throwable.getCause() != null) {
+            return throwable.getCause();
+        }
+        return throwable;
+    }
+}
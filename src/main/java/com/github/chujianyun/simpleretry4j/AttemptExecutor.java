@@ -0,0 +1,140 @@
+package com.github.chujianyun.simpleretry4j;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 带超时或对冲的单次尝试
+ * <p>
+ * 设置了单次超时或总时长时，同步重试的每次尝试在共享的线程池中执行，调用线程最多等待到超时。
+ * 超时后中断执行尝试的线程，不响应中断的操作会被放弃，不再等待其结果。
+ * 运行在JDK 21及以上时尝试在虚拟线程上执行，见{@link VirtualThreads}。
+ * 注意：尝试在其他线程上执行，调用线程的ThreadLocal在操作中不可见。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 17:30
+ */
+final class AttemptExecutor {
+
+    private AttemptExecutor() {
+    }
+
+    /**
+     * 在超时时间内执行一次尝试
+     *
+     * @param timeoutNanos 超时时间（纳秒），不大于0时不执行直接超时
+     * @throws TimeoutException 超时
+     */
+    static <T> T call(Callable<T> callable, long timeoutNanos) throws Exception {
+        if (timeoutNanos <= 0) {
+            throw new TimeoutException("没有剩余时间执行本次尝试");
+        }
+
+        Future<T> future = Holder.EXECUTOR.submit(callable);
+        try {
+            return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new TimeoutException("单次尝试超时");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * 对冲执行一次尝试，每次对冲都在共享的线程池中执行，取最先返回的可用结果
+     *
+     * @param checkResult   是否按终止条件判断返回值
+     * @param deadlineNanos 截止时间，0表示不限制
+     * @throws TimeoutException 超时
+     */
+    static <T> T callHedged(Callable<T> callable, CompiledRetryPolicy retryPolicy, long deadlineNanos, boolean checkResult)
+            throws Exception {
+        long timeoutNanos = 0;
+        if (retryPolicy.hasTimeLimit()) {
+            timeoutNanos = retryPolicy.attemptTimeoutNanos(deadlineNanos);
+            if (timeoutNanos <= 0) {
+                throw new TimeoutException("没有剩余时间执行本次尝试");
+            }
+        }
+
+        CompletableFuture<T> future = new HedgedAttempt<>(() -> submit(callable), retryPolicy, RetryScheduler.shared(), checkResult)
+                .start();
+        try {
+            return timeoutNanos > 0 ? future.get(timeoutNanos, TimeUnit.NANOSECONDS) : future.get();
+        } catch (TimeoutException e) {
+            throw new TimeoutException("单次尝试超时");
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } finally {
+            // 取消还在执行的对冲
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * 在共享的线程池中执行，返回的结果被取消时中断执行的线程
+     */
+    private static <T> CompletableFuture<T> submit(Callable<T> callable) {
+        InterruptibleFuture<T> future = new InterruptibleFuture<>();
+        future.task = new FutureTask<T>(callable) {
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    future.complete(get());
+                } catch (ExecutionException e) {
+                    future.completeExceptionally(e.getCause());
+                } catch (InterruptedException e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        };
+        Holder.EXECUTOR.execute(future.task);
+        return future;
+    }
+
+    private static Exception unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof Exception) {
+            return (Exception) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return e;
+    }
+
+    private static class InterruptibleFuture<T> extends CompletableFuture<T> {
+
+        private volatile FutureTask<T> task;
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            FutureTask<T> task = this.task;
+            if (task != null) {
+                task.cancel(true);
+            }
+            return super.cancel(mayInterruptIfRunning);
+        }
+    }
+
+    private static class Holder {
+
+        /**
+         * 支持虚拟线程时每次尝试在一个虚拟线程上执行，等待超时或对冲时不占用平台线程
+         */
+        private static final ExecutorService EXECUTOR = VirtualThreads.newThreadPerTaskExecutor("simple-retry4j-attempt-");
+    }
+}
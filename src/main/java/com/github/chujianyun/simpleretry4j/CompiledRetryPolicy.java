@@ -0,0 +1,389 @@
+package com.github.chujianyun.simpleretry4j;
+
+import com.github.chujianyun.simpleretry4j.backoff.BackoffStrategies;
+import com.github.chujianyun.simpleretry4j.backoff.BackoffStrategy;
+import com.github.chujianyun.simpleretry4j.budget.RetryBudget;
+import com.github.chujianyun.simpleretry4j.bulkhead.Bulkhead;
+import com.github.chujianyun.simpleretry4j.circuitbreaker.CircuitBreaker;
+import com.github.chujianyun.simpleretry4j.exception.BulkheadFullException;
+import com.github.chujianyun.simpleretry4j.exception.CircuitBreakerOpenException;
+import com.github.chujianyun.simpleretry4j.exception.ResultRejectedException;
+import com.github.chujianyun.simpleretry4j.hedge.HedgePolicy;
+import com.github.chujianyun.simpleretry4j.metrics.RetryListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * 预编译的重试策略
+ * <p>
+ * 把重试策略中的包装类型和列表提前转换为不可变的基本类型字段和数组，
+ * 重试引擎每次执行时只读取这些字段，第一次就成功的路径上不产生任何对象分配。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 14:10
+ */
+final class CompiledRetryPolicy {
+
+    /**
+     * 最大重试次数，-1表示不限次数
+     */
+    private final int maxRetries;
+
+    private final ExceptionClassifier exceptionClassifier;
+
+    /**
+     * 返回值的分类，未设置终止条件和分类时为null，任何返回值都不重试
+     */
+    private final ResultClassifier<Object> resultClassifier;
+
+    private final BackoffStrategy backoffStrategy;
+
+    /**
+     * 最大延时，不限制时为Long.MAX_VALUE
+     */
+    private final long maxDelayMillis;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final RetryBudget retryBudget;
+
+    private final Bulkhead bulkhead;
+
+    /**
+     * 单次尝试的超时时间，0表示不限制
+     */
+    private final long attemptTimeoutNanos;
+
+    /**
+     * 总时长上限，0表示不限制
+     */
+    private final long maxDurationNanos;
+
+    private final HedgePolicy hedgePolicy;
+
+    /**
+     * 监听器，未设置时为null，所有回调都被跳过
+     */
+    private final RetryListener listener;
+
+    CompiledRetryPolicy(RetryPolicy retryPolicy) {
+        Integer maxRetries = retryPolicy.getMaxRetries();
+        if (maxRetries != null && maxRetries < 0) {
+            throw new IllegalArgumentException("最大重试次数不能为负数");
+        }
+        this.maxRetries = maxRetries == null ? -1 : maxRetries;
+
+        this.exceptionClassifier = new ExceptionClassifier(retryPolicy.getAbortExceptions(), retryPolicy.getRetryExceptions(),
+                Boolean.TRUE.equals(retryPolicy.getMatchExceptionCauses()));
+
+        this.resultClassifier = compileResultClassifier(retryPolicy);
+
+        // 未设置退避策略时使用固定的延时时间
+        BackoffStrategy backoffStrategy = retryPolicy.getBackoffStrategy();
+        Duration delayDuration = retryPolicy.getDelayDuration();
+        if (backoffStrategy == null && delayDuration != null && !delayDuration.isNegative()) {
+            backoffStrategy = BackoffStrategies.fixed(delayDuration);
+        }
+        this.backoffStrategy = backoffStrategy;
+        Duration maxDelay = retryPolicy.getMaxDelay();
+        this.maxDelayMillis = maxDelay == null ? Long.MAX_VALUE : maxDelay.toMillis();
+        this.circuitBreaker = retryPolicy.getCircuitBreaker();
+        this.retryBudget = retryPolicy.getRetryBudget();
+        this.bulkhead = retryPolicy.getBulkhead();
+        Duration attemptTimeout = retryPolicy.getAttemptTimeout();
+        this.attemptTimeoutNanos = attemptTimeout == null ? 0 : attemptTimeout.toNanos();
+        Duration maxDuration = retryPolicy.getMaxDuration();
+        this.maxDurationNanos = maxDuration == null ? 0 : maxDuration.toNanos();
+        this.hedgePolicy = retryPolicy.getHedgePolicy();
+        this.listener = retryPolicy.getListener();
+    }
+
+    /**
+     * 是否对冲执行每次尝试
+     */
+    boolean isHedged() {
+        return hedgePolicy != null;
+    }
+
+    HedgePolicy getHedgePolicy() {
+        return hedgePolicy;
+    }
+
+    /**
+     * 通知开始第attempt次尝试
+     *
+     * @return 开始时间，未设置监听器时不计时，返回0
+     */
+    long attemptStarted(int attempt) {
+        if (listener == null) {
+            return 0;
+        }
+        listener.onAttemptStart(attempt);
+        return System.nanoTime();
+    }
+
+    void attemptSucceeded(int attempt, long startNanos) {
+        if (listener != null) {
+            listener.onAttemptSuccess(attempt, System.nanoTime() - startNanos);
+        }
+    }
+
+    void attemptFailed(int attempt, Throwable failure, long startNanos) {
+        if (listener != null) {
+            listener.onAttemptFailure(attempt, failure, System.nanoTime() - startNanos);
+        }
+    }
+
+    void retryScheduled(int retryCount, long delayMillis) {
+        if (listener != null) {
+            listener.onRetryScheduled(retryCount, delayMillis);
+        }
+    }
+
+    void abortedByException(int attempt, Exception exception) {
+        if (listener != null) {
+            listener.onAbortByException(attempt, exception);
+        }
+    }
+
+    void abortedByCondition(int attempt, Object result) {
+        if (listener != null && resultClassifier != null) {
+            listener.onAbortByCondition(attempt, result);
+        }
+    }
+
+    void exhausted(int attempts, Throwable lastFailure) {
+        if (listener != null) {
+            listener.onExhausted(attempts, lastFailure);
+        }
+    }
+
+    /**
+     * 是否限制了单次超时或总时长，限制时每次尝试都需要计时
+     */
+    boolean hasTimeLimit() {
+        return attemptTimeoutNanos > 0 || maxDurationNanos > 0;
+    }
+
+    /**
+     * 根据开始时间计算截止时间，不限制总时长时返回0
+     */
+    long deadlineNanos(long startNanos) {
+        return maxDurationNanos > 0 ? startNanos + maxDurationNanos : 0;
+    }
+
+    /**
+     * 本次尝试的超时时间：单次超时与剩余总时长中较小的一个
+     *
+     * @param deadlineNanos 截止时间，0表示不限制
+     * @return 超时纳秒数，不大于0表示已经没有剩余时间
+     */
+    long attemptTimeoutNanos(long deadlineNanos) {
+        long timeoutNanos = attemptTimeoutNanos > 0 ? attemptTimeoutNanos : Long.MAX_VALUE;
+        if (maxDurationNanos > 0) {
+            timeoutNanos = Math.min(timeoutNanos, deadlineNanos - System.nanoTime());
+        }
+        return timeoutNanos;
+    }
+
+    /**
+     * 等待delayMillis之后是否还在截止时间之前
+     */
+    boolean canMeetDeadline(long deadlineNanos, long delayMillis) {
+        if (maxDurationNanos <= 0) {
+            return true;
+        }
+        return deadlineNanos - System.nanoTime() > TimeUnit.MILLISECONDS.toNanos(delayMillis);
+    }
+
+    /**
+     * 每次尝试前获取熔断器的许可
+     *
+     * @throws CircuitBreakerOpenException 熔断器打开时快速失败
+     */
+    void acquirePermission(Exception lastFailure) {
+        if (!tryAcquirePermission()) {
+            throw new CircuitBreakerOpenException("熔断器已打开", lastFailure);
+        }
+    }
+
+    /**
+     * 尝试获取熔断器的许可，不抛出异常
+     *
+     * @return 熔断器打开时返回false
+     */
+    boolean tryAcquirePermission() {
+        return circuitBreaker == null || circuitBreaker.tryAcquirePermission();
+    }
+
+    /**
+     * 获取熔断器许可后没有记录调用结果就结束本次尝试时（如舱壁已满、调用线程被中断）归还许可，
+     * 否则半开状态下的探测机会会被白白占用
+     */
+    void releasePermission() {
+        if (circuitBreaker != null) {
+            circuitBreaker.releasePermission();
+        }
+    }
+
+    /**
+     * 每次尝试前获取舱壁的许可，没有可用许可时最多等待舱壁设置的时间
+     *
+     * @return 获取许可的时间，用于归还时计算耗时，未设置舱壁时返回0
+     * @throws BulkheadFullException 舱壁已满时快速失败
+     */
+    long acquireBulkhead(int attempt, Exception lastFailure) throws InterruptedException {
+        if (bulkhead == null) {
+            return 0;
+        }
+        long startNanos = System.nanoTime();
+        if (!bulkhead.acquire()) {
+            return rejectBulkhead(attempt, lastFailure);
+        }
+        long acquiredNanos = System.nanoTime();
+        if (listener != null) {
+            listener.onBulkheadAcquired(attempt, acquiredNanos - startNanos);
+        }
+        return acquiredNanos;
+    }
+
+    /**
+     * 不等待获取舱壁的许可，异步重试时使用，避免阻塞定时器线程
+     *
+     * @return 获取许可的时间，未设置舱壁时返回0
+     * @throws BulkheadFullException 舱壁已满时快速失败
+     */
+    long tryAcquireBulkhead(int attempt, Exception lastFailure) {
+        if (bulkhead == null) {
+            return 0;
+        }
+        if (!bulkhead.tryAcquire()) {
+            return rejectBulkhead(attempt, lastFailure);
+        }
+        if (listener != null) {
+            listener.onBulkheadAcquired(attempt, 0);
+        }
+        return System.nanoTime();
+    }
+
+    private long rejectBulkhead(int attempt, Exception lastFailure) {
+        if (listener != null) {
+            listener.onBulkheadRejected(attempt);
+        }
+        throw new BulkheadFullException("舱壁已满", lastFailure);
+    }
+
+    /**
+     * 尝试结束后归还舱壁的许可
+     *
+     * @param acquiredNanos 获取许可的时间
+     */
+    void releaseBulkhead(long acquiredNanos) {
+        if (bulkhead != null) {
+            bulkhead.release(System.nanoTime() - acquiredNanos);
+        }
+    }
+
+    /**
+     * 重试等待前检查熔断器，已打开时不再等待
+     *
+     * @throws CircuitBreakerOpenException 熔断器打开时快速失败
+     */
+    void checkPermitted(Exception lastFailure) {
+        if (circuitBreaker != null && !circuitBreaker.isCallPermitted()) {
+            throw new CircuitBreakerOpenException("熔断器已打开", lastFailure);
+        }
+    }
+
+    /**
+     * 重试前从重试预算中取出令牌
+     *
+     * @return 预算不足时返回false，不再重试
+     */
+    boolean tryAcquireRetry() {
+        return retryBudget == null || retryBudget.tryWithdraw();
+    }
+
+    /**
+     * 记录一次成功的尝试
+     */
+    void onSuccess() {
+        if (circuitBreaker != null) {
+            circuitBreaker.onSuccess();
+        }
+        if (retryBudget != null) {
+            retryBudget.deposit();
+        }
+    }
+
+    /**
+     * 记录一次不需要重试的业务异常，说明依赖能正常响应，熔断器按成功计
+     */
+    void onAbortException() {
+        if (circuitBreaker != null) {
+            circuitBreaker.onSuccess();
+        }
+    }
+
+    /**
+     * 记录一次需要重试的失败尝试
+     */
+    void onFailure() {
+        if (circuitBreaker != null) {
+            circuitBreaker.onError();
+        }
+    }
+
+    /**
+     * 是否还能进行第retryCount次重试
+     */
+    boolean canRetry(int retryCount) {
+        return maxRetries < 0 || retryCount <= maxRetries;
+    }
+
+    /**
+     * 是否是不需要重试的异常，返回值被拒绝的异常总是不重试
+     */
+    boolean isAbortException(Exception e) {
+        return e instanceof ResultRejectedException || exceptionClassifier.isAbort(e);
+    }
+
+    /**
+     * 对返回值分类（不设置终止条件和分类时任何返回值都不重试）
+     */
+    ResultDecision classifyResult(Object result) {
+        return resultClassifier == null ? ResultDecision.ABORT : resultClassifier.classify(result);
+    }
+
+    /**
+     * 计算第retryCount次重试前的延时
+     */
+    long nextDelayMillis(int retryCount, long lastDelayMillis) {
+        if (backoffStrategy == null) {
+            return 0;
+        }
+        long delayMillis = Math.max(0, backoffStrategy.delayMillis(retryCount, lastDelayMillis));
+        return Math.min(delayMillis, maxDelayMillis);
+    }
+
+    /**
+     * 带类型的分类直接使用，abortConditions转换为等价的分类
+     */
+    @SuppressWarnings("unchecked")
+    private static ResultClassifier<Object> compileResultClassifier(RetryPolicy retryPolicy) {
+        ResultClassifier<?> resultClassifier = retryPolicy.getResultClassifier();
+        List<Predicate> abortConditions = retryPolicy.getAbortConditions();
+        boolean hasAbortConditions = abortConditions != null && !abortConditions.isEmpty();
+        if (resultClassifier != null) {
+            if (hasAbortConditions) {
+                throw new IllegalArgumentException("不能同时设置不重试的条件和返回值分类");
+            }
+            // 分类只会收到操作的返回值，返回值的类型由调用方保证
+            return (ResultClassifier<Object>) resultClassifier;
+        }
+        return hasAbortConditions ? ResultClassifier.fromAbortConditions(abortConditions) : null;
+    }
+}
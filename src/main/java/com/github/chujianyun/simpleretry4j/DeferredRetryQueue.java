@@ -0,0 +1,776 @@
+package com.github.chujianyun.simpleretry4j;
+
+import com.github.chujianyun.simpleretry4j.batchexec.DeadLetterSink;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 持久化的延迟重试队列
+ * <p>
+ * 失败的任务序列化后追加到本地的段文件中，内存中只记录每个任务的位置，到期时间交给共享的{@link RetryScheduler}调度，
+ * 等待期间不占用线程；到期后由工作线程从文件读出任务，按重试策略执行，失败则追加一条新的记录等待下一次重试。
+ * 任务完成后在原记录上标记完成，段文件中的任务都完成后删除该文件。进程重启后重新扫描段文件，恢复所有未完成的任务。
+ * <p>
+ * 新的任务记录写入后立即刷盘，完成标记不刷盘，崩溃时可能再次执行已完成的任务，即至少执行一次。
+ * 使用重试策略的最大重试次数、不重试的异常、退避、熔断器、重试预算和监听器；到期时间按系统时间计算，
+ * 单次超时、总时长和对冲不生效。超过重试次数或不需要重试的任务交给死信处理，没有设置时记录日志后丢弃。
+ * 熔断器打开时任务不执行，只推迟到期时间，不计入尝试次数，也不消耗重试预算。
+ * 工作线程上执行时抛出Error等非RuntimeException时同样计入重试次数，不能再重试时包装为ExecutionException交给死信处理。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-19 03:00
+ */
+@Slf4j
+public final class DeferredRetryQueue<T> implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * 记录头：任务长度4字节，状态1字节，到期时间8字节，已尝试次数4字节，上一次的延时8字节
+     */
+    private static final int HEADER_SIZE = 25;
+
+    private static final byte LIVE = 1;
+
+    private static final byte DONE = 2;
+
+    private final Path directory;
+
+    private final Consumer<T> handler;
+
+    private final Codec<T> codec;
+
+    private final CompiledRetryPolicy retryPolicy;
+
+    private final DeadLetterSink<T> deadLetterSink;
+
+    private final long segmentBytes;
+
+    private final long minDeferMillis;
+
+    private final ExecutorService workers;
+
+    /**
+     * 写新记录时复用的记录头，由this保护
+     */
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+    /**
+     * 正在追加的段，由this保护
+     */
+    private Segment active;
+
+    private long nextSegmentId;
+
+    /**
+     * 所有未删除的段，由this保护
+     */
+    private final Set<Segment> segments = new HashSet<>();
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * 已交给调度器、还没有到期的任务，关闭时取消
+     */
+    private final Set<Entry> waiting = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean closed;
+
+    private DeferredRetryQueue(Builder<T> builder) throws IOException {
+        if (builder.directory == null || builder.handler == null || builder.retryPolicy == null) {
+            throw new IllegalArgumentException("directory, handler and retryPolicy must be set");
+        }
+        this.directory = builder.directory;
+        this.handler = builder.handler;
+        this.codec = builder.codec != null ? builder.codec : javaSerialization(new HashSet<>(builder.allowedClasses));
+        this.retryPolicy = builder.retryPolicy.compiled();
+        this.deadLetterSink = builder.deadLetterSink;
+        this.segmentBytes = builder.segmentBytes;
+        this.minDeferMillis = builder.minDeferDuration.toMillis();
+
+        AtomicInteger index = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(builder.workers, runnable -> {
+            Thread thread = new Thread(runnable, "simple-retry4j-deferred-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * 在调用线程上执行一次，需要重试时写入队列后返回
+     *
+     * @param task 任务
+     * @return 执行成功返回true，已写入队列等待重试或熔断器打开时返回false
+     * @throws RuntimeException     不需要重试的异常，或者不能再重试时最后一次的异常
+     * @throws UncheckedIOException 写入队列失败
+     */
+    public boolean execute(T task) {
+        checkOpen();
+        // 熔断器打开时不执行，写入队列等待
+        if (!retryPolicy.tryAcquirePermission()) {
+            schedule(append(encode(task), System.currentTimeMillis() + minDeferMillis, 0, 0));
+            return false;
+        }
+        int attempt = 1;
+        long startNanos = retryPolicy.attemptStarted(attempt);
+        try {
+            handler.accept(task);
+        } catch (RuntimeException e) {
+            retryPolicy.attemptFailed(attempt, e, startNanos);
+            if (abort(attempt, e) || !retryAfterFailure(null, task, null, attempt, 0, e)) {
+                throw e;
+            }
+            return false;
+        } catch (Throwable t) {
+            // Error等与同步版本一致，不重试，直接抛给调用方
+            retryPolicy.attemptFailed(attempt, t, startNanos);
+            retryPolicy.onFailure();
+            throw t;
+        }
+        retryPolicy.attemptSucceeded(attempt, startNanos);
+        retryPolicy.onSuccess();
+        return true;
+    }
+
+    /**
+     * 写入队列，由工作线程立即执行
+     *
+     * @throws UncheckedIOException 写入队列失败
+     */
+    public void submit(T task) {
+        checkOpen();
+        schedule(append(encode(task), System.currentTimeMillis(), 0, 0));
+    }
+
+    /**
+     * 等待执行或正在执行的任务个数
+     */
+    public int size() {
+        return pending.get();
+    }
+
+    /**
+     * 停止工作线程并取消未到期的调度，未完成的任务保留在文件中，下次打开时继续执行
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        workers.shutdown();
+        try {
+            workers.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 工作线程停止后不会再调度新的任务
+        for (Entry entry : waiting) {
+            Future<?> timeout = entry.timeout;
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+        }
+        waiting.clear();
+        synchronized (this) {
+            if (active != null) {
+                active.channel.force(false);
+            }
+            closeSegments();
+        }
+    }
+
+    /* ---------------- 执行 -------------- */
+
+    private void run(Entry entry) {
+        if (closed) {
+            return;
+        }
+        // 熔断器打开时只在内存中推迟，不读取任务，不计入尝试次数
+        if (!retryPolicy.tryAcquirePermission()) {
+            defer(entry);
+            return;
+        }
+        byte[] payload;
+        T task;
+        try {
+            payload = entry.segment.read(entry);
+            task = codec.decode(payload);
+        } catch (IOException | RuntimeException e) {
+            // 无法读出的任务再次执行也不会成功，标记完成以免每次重启都重复失败
+            log.error("读取延迟重试的任务失败，丢弃该任务：" + entry.segment.path, e);
+            retryPolicy.releasePermission();
+            markDone(entry);
+            return;
+        }
+
+        int attempt = entry.attempts + 1;
+        long startNanos = retryPolicy.attemptStarted(attempt);
+        try {
+            handler.accept(task);
+        } catch (RuntimeException e) {
+            retryPolicy.attemptFailed(attempt, e, startNanos);
+            if (abort(attempt, e) || !retryAfterFailure(entry, task, payload, attempt, entry.lastDelayMillis, e)) {
+                giveUp(entry, task, e);
+            }
+            return;
+        } catch (Throwable t) {
+            // Error等不会被判断为终止异常，与其他失败一样计入重试次数，不能再重试时包装后交给死信处理
+            log.error("执行延迟重试的任务出错", t);
+            retryPolicy.attemptFailed(attempt, t, startNanos);
+            if (!retryAfterFailure(entry, task, payload, attempt, entry.lastDelayMillis, t)) {
+                giveUp(entry, task, new ExecutionException(t));
+            }
+            return;
+        }
+        retryPolicy.attemptSucceeded(attempt, startNanos);
+        retryPolicy.onSuccess();
+        markDone(entry);
+    }
+
+    /**
+     * 第attempt次尝试失败后按重试策略写入下一次重试
+     *
+     * @param entry   失败的任务的记录，在调用线程上第一次执行时为null
+     * @param payload 序列化后的任务，为null时重新序列化
+     * @return 不能再重试时返回false
+     */
+    private boolean retryAfterFailure(Entry entry, T task, byte[] payload, int attempt, long lastDelayMillis, Throwable failure) {
+        retryPolicy.onFailure();
+        if (!retryPolicy.canRetry(attempt) || !retryPolicy.tryAcquireRetry()) {
+            retryPolicy.exhausted(attempt, failure);
+            return false;
+        }
+
+        long delayMillis = retryPolicy.nextDelayMillis(attempt, lastDelayMillis);
+        long dueMillis = System.currentTimeMillis() + delayMillis;
+        Entry next;
+        try {
+            next = append(payload != null ? payload : encode(task), dueMillis, attempt, delayMillis);
+        } catch (UncheckedIOException ioe) {
+            if (entry == null) {
+                throw ioe;
+            }
+            // 写入失败时只在内存中推迟原记录，重启后仍会从原记录恢复
+            log.error("写入延迟重试的任务失败", ioe);
+            entry.dueMillis = dueMillis;
+            schedule(entry);
+            return true;
+        }
+        retryPolicy.retryScheduled(attempt, delayMillis);
+        schedule(next);
+        // 先写新记录再标记原记录完成，中间崩溃时最多重复执行一次
+        if (entry != null) {
+            markDone(entry);
+        }
+        return true;
+    }
+
+    /**
+     * 不执行任务，按上一次的延时（至少minDeferDuration）在内存中推迟，文件中的记录不变
+     */
+    private void defer(Entry entry) {
+        entry.dueMillis = System.currentTimeMillis() + Math.max(entry.lastDelayMillis, minDeferMillis);
+        schedule(entry);
+    }
+
+    /**
+     * 不需要重试的异常记录为终止
+     */
+    private boolean abort(int attempt, RuntimeException e) {
+        if (!retryPolicy.isAbortException(e)) {
+            return false;
+        }
+        retryPolicy.abortedByException(attempt, e);
+        retryPolicy.onAbortException();
+        return true;
+    }
+
+    /**
+     * 交给死信处理后标记完成
+     */
+    private void giveUp(Entry entry, T task, Exception e) {
+        try {
+            if (deadLetterSink != null) {
+                deadLetterSink.accept(task, e);
+            } else {
+                log.warn("延迟重试的任务不再重试，丢弃该任务", e);
+            }
+        } finally {
+            markDone(entry);
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("延迟重试队列已关闭");
+        }
+    }
+
+    private byte[] encode(T task) {
+        try {
+            return codec.encode(task);
+        } catch (IOException e) {
+            throw new UncheckedIOException("序列化任务失败", e);
+        }
+    }
+
+    /* ---------------- 调度 -------------- */
+
+    /**
+     * 到期后交给工作线程
+     */
+    private void schedule(Entry entry) {
+        long delayMillis = Math.max(0, entry.dueMillis - System.currentTimeMillis());
+        waiting.add(entry);
+        entry.timeout = RetryScheduler.shared().schedule(() -> {
+            waiting.remove(entry);
+            dispatch(entry);
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void dispatch(Entry entry) {
+        try {
+            workers.execute(() -> run(entry));
+        } catch (RejectedExecutionException e) {
+            // 已关闭，任务保留在文件中
+        }
+    }
+
+    /* ---------------- 段文件 -------------- */
+
+    /**
+     * 追加一条记录并刷盘
+     */
+    private synchronized Entry append(byte[] payload, long dueMillis, int attempts, long lastDelayMillis) {
+        try {
+            if (active == null || active.size >= segmentBytes) {
+                rotate();
+            }
+            long offset = active.size;
+            header.clear();
+            header.putInt(payload.length).put(LIVE).putLong(dueMillis).putInt(attempts).putLong(lastDelayMillis).flip();
+            ByteBuffer[] buffers = {header, ByteBuffer.wrap(payload)};
+            while (buffers[1].hasRemaining()) {
+                active.channel.write(buffers);
+            }
+            active.channel.force(false);
+            active.size += HEADER_SIZE + payload.length;
+            active.live.incrementAndGet();
+            pending.incrementAndGet();
+            return new Entry(active, offset, payload.length, dueMillis, attempts, lastDelayMillis);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入延迟重试的任务失败：" + directory, e);
+        }
+    }
+
+    private void rotate() throws IOException {
+        Segment previous = active;
+        Path path = directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, nextSegmentId++, SEGMENT_SUFFIX));
+        active = new Segment(path, FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE));
+        segments.add(active);
+        if (previous != null) {
+            previous.sealed = true;
+            deleteIfEmpty(previous);
+        }
+    }
+
+    private void markDone(Entry entry) {
+        Segment segment = entry.segment;
+        try {
+            segment.channel.write(ByteBuffer.wrap(new byte[]{DONE}), entry.offset + 4);
+        } catch (IOException e) {
+            log.error("标记延迟重试的任务完成失败：" + segment.path, e);
+        }
+        pending.decrementAndGet();
+        if (segment.live.decrementAndGet() == 0 && segment.sealed) {
+            deleteIfEmpty(segment);
+        }
+    }
+
+    private synchronized void deleteIfEmpty(Segment segment) {
+        if (segment.deleted || segment.live.get() > 0 || segment == active) {
+            return;
+        }
+        segment.deleted = true;
+        segments.remove(segment);
+        try {
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            log.error("删除延迟重试的段文件失败：" + segment.path, e);
+        }
+    }
+
+    /**
+     * 扫描已有的段文件，恢复未完成的任务，截断末尾写入一半的记录
+     */
+    private void recover() throws IOException {
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                paths.add(path);
+            }
+        }
+        paths.sort(null);
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        for (Path path : paths) {
+            String name = path.getFileName().toString();
+            long id = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+            nextSegmentId = Math.max(nextSegmentId, id + 1);
+
+            Segment segment = new Segment(path, FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE));
+            segment.sealed = true;
+            segments.add(segment);
+            long size = segment.channel.size();
+            long offset = 0;
+            while (offset + HEADER_SIZE <= size) {
+                buffer.clear();
+                while (buffer.hasRemaining() && segment.channel.read(buffer, offset + buffer.position()) >= 0) {
+                    // 读满记录头
+                }
+                buffer.flip();
+                int length = buffer.getInt();
+                byte state = buffer.get();
+                if (length < 0 || offset + HEADER_SIZE + length > size) {
+                    break;
+                }
+                if (state == LIVE) {
+                    segment.live.incrementAndGet();
+                    pending.incrementAndGet();
+                    schedule(new Entry(segment, offset, length, buffer.getLong(), buffer.getInt(), buffer.getLong()));
+                }
+                offset += HEADER_SIZE + length;
+            }
+            if (offset < size) {
+                segment.channel.truncate(offset);
+            }
+            segment.size = offset;
+            deleteIfEmpty(segment);
+        }
+    }
+
+    private void closeSegments() throws IOException {
+        for (Segment segment : segments) {
+            segment.channel.close();
+        }
+    }
+
+    /**
+     * 任务的序列化方式
+     */
+    public interface Codec<T> {
+
+        byte[] encode(T task) throws IOException;
+
+        T decode(byte[] bytes) throws IOException;
+    }
+
+    /**
+     * 默认反序列化时允许的类，任务使用的其他类需要通过{@link Builder#allowedClasses}设置
+     */
+    private static final Class<?>[] BASIC_CLASSES = {
+            String.class, Boolean.class, Character.class, Byte.class, Short.class,
+            Integer.class, Long.class, Float.class, Double.class, Number.class, Enum.class
+    };
+
+    /**
+     * 默认的序列化方式，任务需要实现Serializable
+     * <p>
+     * 读取文件中的任务时只允许反序列化allowed中的类及其父类（包括这些类和基本类型的数组），其他类直接拒绝，
+     * 以免段文件被篡改时借助反序列化执行任意代码；写入时做同样的检查，在提交时就发现不能读回的任务。
+     */
+    private static <T> Codec<T> javaSerialization(Set<Class<?>> allowed) {
+        return new Codec<T>() {
+            @Override
+            public byte[] encode(T task) throws IOException {
+                if (!(task instanceof Serializable)) {
+                    throw new IOException("任务没有实现Serializable，需要设置codec：" + task);
+                }
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream out = new ObjectOutputStream(bytes) {
+                    @Override
+                    protected void annotateClass(Class<?> cl) throws IOException {
+                        checkAllowed(allowed, cl);
+                    }
+                }) {
+                    out.writeObject(task);
+                }
+                return bytes.toByteArray();
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T decode(byte[] bytes) throws IOException {
+                try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes)) {
+                    @Override
+                    protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+                        // 只加载不初始化，检查通过前不会执行该类的任何代码
+                        Class<?> cl = super.resolveClass(desc);
+                        checkAllowed(allowed, cl);
+                        return cl;
+                    }
+                }) {
+                    return (T) in.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException(e);
+                }
+            }
+        };
+    }
+
+    private static void checkAllowed(Set<Class<?>> allowed, Class<?> cl) throws InvalidClassException {
+        Class<?> type = cl;
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (!type.isPrimitive() && !allowed.contains(type)) {
+            throw new InvalidClassException(cl.getName(), "不允许反序列化，需要通过allowedClasses设置");
+        }
+    }
+
+    /**
+     * 一个段文件
+     */
+    private static final class Segment {
+
+        private final Path path;
+
+        private final FileChannel channel;
+
+        /**
+         * 未完成的记录数
+         */
+        private final AtomicInteger live = new AtomicInteger();
+
+        /**
+         * 文件长度，只在追加时修改
+         */
+        private long size;
+
+        /**
+         * 不再追加，未完成的记录数为0时可以删除
+         */
+        private volatile boolean sealed;
+
+        private boolean deleted;
+
+        private Segment(Path path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+        }
+
+        private byte[] read(Entry entry) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, entry.offset + HEADER_SIZE + buffer.position()) < 0) {
+                    throw new IOException("延迟重试的任务不完整：" + path);
+                }
+            }
+            return buffer.array();
+        }
+    }
+
+    /**
+     * 等待执行的一个任务，只记录任务在文件中的位置
+     */
+    private static final class Entry {
+
+        private final Segment segment;
+
+        private final long offset;
+
+        private final int length;
+
+        private volatile long dueMillis;
+
+        private final int attempts;
+
+        private final long lastDelayMillis;
+
+        /**
+         * 最近一次调度，关闭时取消
+         */
+        private volatile Future<?> timeout;
+
+        private Entry(Segment segment, long offset, int length, long dueMillis, int attempts, long lastDelayMillis) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.dueMillis = dueMillis;
+            this.attempts = attempts;
+            this.lastDelayMillis = lastDelayMillis;
+        }
+    }
+
+    public static class Builder<T> {
+
+        private Path directory;
+
+        private Consumer<T> handler;
+
+        private Codec<T> codec;
+
+        private final Set<Class<?>> allowedClasses = new HashSet<>(Arrays.asList(BASIC_CLASSES));
+
+        private RetryPolicy retryPolicy;
+
+        private DeadLetterSink<T> deadLetterSink;
+
+        private int workers = 1;
+
+        private long segmentBytes = 64L * 1024 * 1024;
+
+        private Duration minDeferDuration = Duration.ofMillis(100);
+
+        /**
+         * 段文件所在的目录，一个目录只能由一个队列使用
+         */
+        public Builder<T> directory(Path directory) {
+            if (directory == null) {
+                throw new IllegalArgumentException("directory must not be null");
+            }
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * 执行任务的方法，抛出异常表示失败
+         */
+        public Builder<T> handler(Consumer<T> handler) {
+            if (handler == null) {
+                throw new IllegalArgumentException("handler must not be null");
+            }
+            this.handler = handler;
+            return this;
+        }
+
+        /**
+         * 任务的序列化方式，不设置时使用Java序列化，只允许反序列化{@link #allowedClasses}中的类
+         */
+        public Builder<T> codec(Codec<T> codec) {
+            if (codec == null) {
+                throw new IllegalArgumentException("codec must not be null");
+            }
+            this.codec = codec;
+            return this;
+        }
+
+        /**
+         * 默认的Java序列化方式允许反序列化的类，默认只允许String和基本类型的包装类。
+         * 任务的类和任务中用到的其他类都需要设置，父类会自动允许；设置了codec时不生效
+         */
+        public Builder<T> allowedClasses(Class<?>... classes) {
+            if (classes == null) {
+                throw new IllegalArgumentException("classes must not be null");
+            }
+            for (Class<?> cl : classes) {
+                if (cl == null) {
+                    throw new IllegalArgumentException("classes must not contain null");
+                }
+                for (Class<?> type = cl; type != null; type = type.getSuperclass()) {
+                    allowedClasses.add(type);
+                }
+            }
+            return this;
+        }
+
+        public Builder<T> retryPolicy(RetryPolicy retryPolicy) {
+            if (retryPolicy == null) {
+                throw new IllegalArgumentException("retryPolicy must not be null");
+            }
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        /**
+         * 不再重试的任务的死信处理
+         */
+        public Builder<T> deadLetterSink(DeadLetterSink<T> deadLetterSink) {
+            if (deadLetterSink == null) {
+                throw new IllegalArgumentException("deadLetterSink must not be null");
+            }
+            this.deadLetterSink = deadLetterSink;
+            return this;
+        }
+
+        /**
+         * 执行到期任务的线程数，默认1
+         */
+        public Builder<T> workers(int workers) {
+            if (workers <= 0) {
+                throw new IllegalArgumentException("workers must be positive");
+            }
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * 单个段文件的大小，超过后写入新的段文件，默认64MB
+         */
+        public Builder<T> segmentBytes(long segmentBytes) {
+            if (segmentBytes <= 0) {
+                throw new IllegalArgumentException("segmentBytes must be positive");
+            }
+            this.segmentBytes = segmentBytes;
+            return this;
+        }
+
+        /**
+         * 熔断器打开时任务至少推迟的时间，默认100毫秒
+         */
+        public Builder<T> minDeferDuration(Duration minDeferDuration) {
+            if (minDeferDuration == null || minDeferDuration.toMillis() <= 0) {
+                throw new IllegalArgumentException("minDeferDuration must be at least 1 millisecond");
+            }
+            this.minDeferDuration = minDeferDuration;
+            return this;
+        }
+
+        /**
+         * 打开队列，恢复目录中未完成的任务
+         */
+        public DeferredRetryQueue<T> build() throws IOException {
+            return new DeferredRetryQueue<>(this);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.chujianyun.simpleretry4j;
+
+import java.util.List;
+
+/**
+ * 预编译的异常分类
+ * <p>
+ * 按异常的类型判断是否需要重试，每个异常类型与不重试的异常列表、可重试的异常列表的匹配结果
+ * 用 {@link ClassValue} 缓存，同一个类型只在第一次出现时遍历列表，之后每次判断只是一次查找。
+ * 开启原因链匹配时依次判断异常及其cause，任一个匹配即算匹配。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 22:40
+ */
+final class ExceptionClassifier {
+
+    private static final int MATCHES_ABORT = 1;
+
+    private static final int MATCHES_RETRY = 2;
+
+    /**
+     * 原因链的最大深度，避免异常链过长或成环
+     */
+    private static final int MAX_CAUSE_DEPTH = 16;
+
+    private final Class<?>[] abortExceptions;
+
+    private final Class<?>[] retryExceptions;
+
+    private final boolean matchCauses;
+
+    private final ClassValue<Integer> matches = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            int flags = 0;
+            if (isAssignable(abortExceptions, type)) {
+                flags |= MATCHES_ABORT;
+            }
+            if (isAssignable(retryExceptions, type)) {
+                flags |= MATCHES_RETRY;
+            }
+            // 0到3的Integer有缓存，查找时不产生对象分配
+            return flags;
+        }
+    };
+
+    ExceptionClassifier(List<Class<? extends Exception>> abortExceptions, List<Class<? extends Exception>> retryExceptions,
+                        boolean matchCauses) {
+        this.abortExceptions = toArray(abortExceptions);
+        this.retryExceptions = toArray(retryExceptions);
+        this.matchCauses = matchCauses;
+    }
+
+    /**
+     * 是否是不需要重试的异常：匹配不重试的异常列表，或者设置了可重试的异常列表但不匹配
+     */
+    boolean isAbort(Throwable e) {
+        if (abortExceptions.length == 0 && retryExceptions.length == 0) {
+            return false;
+        }
+
+        int flags = matches.get(e.getClass());
+        if (matchCauses) {
+            Throwable cause = e.getCause();
+            for (int depth = 0; cause != null && cause != e && depth < MAX_CAUSE_DEPTH; depth++) {
+                flags |= matches.get(cause.getClass());
+                e = cause;
+                cause = cause.getCause();
+            }
+        }
+
+        if ((flags & MATCHES_ABORT) != 0) {
+            return true;
+        }
+        return retryExceptions.length > 0 && (flags & MATCHES_RETRY) == 0;
+    }
+
+    private static boolean isAssignable(Class<?>[] classes, Class<?> type) {
+        for (Class<?> clazz : classes) {
+            if (clazz.isAssignableFrom(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Class<?>[] toArray(List<Class<? extends Exception>> classes) {
+        return classes == null || classes.isEmpty() ? new Class<?>[0] : classes.toArray(new Class<?>[0]);
+    }
+}
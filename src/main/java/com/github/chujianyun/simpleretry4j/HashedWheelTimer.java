@@ -0,0 +1,593 @@
+package com.github.chujianyun.simpleretry4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 哈希时间轮定时器
+ * <p>
+ * 定时任务按到期的刻度放入环形数组的槽中，每个槽是一个双向链表，添加和取消都是O(1)；
+ * 工作线程每个刻度处理一个槽，槽中到期的任务一次全部执行，超过一圈的任务只减少剩余圈数。
+ * 添加的任务先追加到无锁的多生产者单消费者队列，由工作线程在下一个刻度放入槽中；
+ * 取消只修改任务的状态，工作线程处理所在的槽时再移除，调用线程之间没有锁竞争。
+ * 大量并发的重试定时任务使用 {@link java.util.concurrent.ScheduledThreadPoolExecutor} 时，
+ * 每次添加和取消都需要加锁并调整堆（O(log n)），时间轮没有这个开销。
+ * <p>
+ * 任务不会提前执行，最多延后一个刻度；任务在工作线程上依次执行，耗时的任务应提交到其他线程池。
+ * 没有任务时工作线程挂起，不会每个刻度都被唤醒。
+ * 关闭后不再接受新的任务，已添加的一次性任务到期后照常执行，周期任务不再继续。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-19 04:00
+ */
+public final class HashedWheelTimer extends AbstractExecutorService implements ScheduledExecutorService {
+
+    private static final AtomicInteger TIMER_INDEX = new AtomicInteger();
+
+    /**
+     * 每个刻度最多从队列转移到槽中的任务数，避免大量添加时迟迟不执行到期的任务
+     */
+    private static final int MAX_TRANSFER_PER_TICK = 100_000;
+
+    /**
+     * 延时的上限，避免到期时间溢出
+     */
+    private static final long MAX_DELAY_NANOS = Long.MAX_VALUE >> 2;
+
+    private static final int RUNNING = 0;
+
+    private static final int SHUTDOWN = 1;
+
+    private static final int STOPPED = 2;
+
+    private final long tickNanos;
+
+    private final Bucket[] wheel;
+
+    private final int mask;
+
+    /**
+     * 新添加的任务组成的队列的尾部，任意线程通过getAndSet追加
+     */
+    private final AtomicReference<Timeout<?>> tail;
+
+    /**
+     * 队列的头部（已取出的最后一个任务），只由工作线程访问
+     */
+    private Timeout<?> head;
+
+    /**
+     * 槽中的任务数，只由工作线程修改
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final long startNanos;
+
+    private final Thread worker;
+
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    private volatile int state = RUNNING;
+
+    /**
+     * 工作线程没有任务而挂起
+     */
+    private volatile boolean idle;
+
+    /**
+     * 已处理的刻度数，只由工作线程访问
+     */
+    private long tick;
+
+    /**
+     * 立即关闭时未执行的任务
+     */
+    private volatile List<Runnable> unprocessed;
+
+    private HashedWheelTimer(Builder builder) {
+        this.tickNanos = builder.tickDuration.toNanos();
+        int ticksPerWheel = Integer.highestOneBit(builder.ticksPerWheel - 1) << 1;
+        this.wheel = new Bucket[Math.max(ticksPerWheel, 1)];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheel.length - 1;
+
+        Timeout<Void> stub = new Timeout<>(() -> {
+        }, null, 0, 0);
+        this.head = stub;
+        this.tail = new AtomicReference<>(stub);
+
+        String threadName = builder.threadName != null ? builder.threadName
+                : "simple-retry4j-timer-" + TIMER_INDEX.incrementAndGet();
+        this.worker = new Thread(new Worker(), threadName);
+        this.worker.setDaemon(true);
+        this.startNanos = System.nanoTime();
+        this.worker.start();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 槽中未执行的定时任务数，包括已取消但还未移除的任务，不包括还未放入槽中的任务
+     */
+    public int pendingTimeouts() {
+        return pending.get();
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        if (command == null || unit == null) {
+            throw new NullPointerException();
+        }
+        return add(new Timeout<Void>(command, null, deadlineNanos(delay, unit), 0));
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        if (callable == null || unit == null) {
+            throw new NullPointerException();
+        }
+        return add(new Timeout<>(callable, deadlineNanos(delay, unit), 0));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        if (command == null || unit == null) {
+            throw new NullPointerException();
+        }
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be positive");
+        }
+        return add(new Timeout<Void>(command, null, deadlineNanos(initialDelay, unit), Math.min(unit.toNanos(period), MAX_DELAY_NANOS)));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        if (command == null || unit == null) {
+            throw new NullPointerException();
+        }
+        if (delay <= 0) {
+            throw new IllegalArgumentException("delay must be positive");
+        }
+        return add(new Timeout<Void>(command, null, deadlineNanos(initialDelay, unit), -Math.min(unit.toNanos(delay), MAX_DELAY_NANOS)));
+    }
+
+    /**
+     * 在下一个刻度执行
+     */
+    @Override
+    public void execute(Runnable command) {
+        schedule(command, 0, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void shutdown() {
+        if (state == RUNNING) {
+            state = SHUTDOWN;
+        }
+        LockSupport.unpark(worker);
+    }
+
+    /**
+     * 立即停止，返回未执行的任务；在定时任务中调用时不等待，返回空列表
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        state = STOPPED;
+        LockSupport.unpark(worker);
+        if (Thread.currentThread() == worker) {
+            return new ArrayList<>();
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                terminated.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return unprocessed;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return state != RUNNING;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminated.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    private long deadlineNanos(long delay, TimeUnit unit) {
+        long delayNanos = Math.min(Math.max(unit.toNanos(delay), 0), MAX_DELAY_NANOS);
+        return System.nanoTime() + delayNanos;
+    }
+
+    private <V> Timeout<V> add(Timeout<V> timeout) {
+        if (state != RUNNING) {
+            throw new RejectedExecutionException("定时器已关闭");
+        }
+        Timeout<?> previous = tail.getAndSet(timeout);
+        previous.nextAdded = timeout;
+        if (idle) {
+            LockSupport.unpark(worker);
+        }
+        // 与关闭并发时工作线程可能已经退出
+        if (state != RUNNING && timeout.cancel(false)) {
+            throw new RejectedExecutionException("定时器已关闭");
+        }
+        return timeout;
+    }
+
+    /**
+     * 工作线程，槽和任务的链表指针只由它访问
+     */
+    private final class Worker implements Runnable {
+
+        /**
+         * 槽中的任务数
+         */
+        private int count;
+
+        /**
+         * 本刻度执行后需要再次放入槽中的周期任务
+         */
+        private final List<Timeout<?>> rescheduled = new ArrayList<>();
+
+        private boolean periodicCancelled;
+
+        @Override
+        public void run() {
+            try {
+                while (awaitTimeouts()) {
+                    long deadline = waitForNextTick();
+                    if (state == STOPPED) {
+                        break;
+                    }
+                    if (state == SHUTDOWN && !periodicCancelled) {
+                        periodicCancelled = true;
+                        cancelPeriodic();
+                    }
+                    transferTimeouts();
+                    expire(wheel[(int) (tick & mask)], deadline);
+                    tick++;
+                    // 周期任务至少放到下一个刻度，放回刚处理过的槽要等时间轮转一整圈
+                    for (Timeout<?> timeout : rescheduled) {
+                        place(timeout);
+                    }
+                    rescheduled.clear();
+                    pending.lazySet(count);
+                }
+                if (state == STOPPED) {
+                    unprocessed = drainUnprocessed();
+                }
+            } finally {
+                terminated.countDown();
+            }
+        }
+
+        /**
+         * 没有任务时挂起，直到添加了任务或者关闭
+         *
+         * @return 是否继续处理刻度
+         */
+        private boolean awaitTimeouts() {
+            if (count > 0 || tail.get() != head) {
+                return state != STOPPED;
+            }
+            if (state != RUNNING) {
+                return false;
+            }
+            // 先设置idle再检查队列，与添加时先追加再检查idle配合，不会错过唤醒
+            idle = true;
+            while (tail.get() == head && state == RUNNING) {
+                LockSupport.park(this);
+            }
+            idle = false;
+            // 挂起期间槽都是空的，直接跳到当前的刻度
+            tick = Math.max(tick, (System.nanoTime() - startNanos) / tickNanos);
+            return state != STOPPED;
+        }
+
+        /**
+         * 等待当前刻度结束
+         *
+         * @return 当前刻度结束的时间
+         */
+        private long waitForNextTick() {
+            long deadline = startNanos + (tick + 1) * tickNanos;
+            while (true) {
+                long sleepNanos = deadline - System.nanoTime();
+                if (sleepNanos <= 0 || state == STOPPED) {
+                    return deadline;
+                }
+                LockSupport.parkNanos(this, sleepNanos);
+            }
+        }
+
+        /**
+         * 把新添加的任务放入槽中，已取消的直接丢弃
+         */
+        private void transferTimeouts() {
+            for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+                // 生产者已经交换了尾部但还没有链接时取不到，下一个刻度再取
+                Timeout<?> next = head.nextAdded;
+                if (next == null) {
+                    return;
+                }
+                head.nextAdded = null;
+                head = next;
+                if (!next.isCancelled()) {
+                    place(next);
+                }
+            }
+        }
+
+        private void place(Timeout<?> timeout) {
+            long calculated = (timeout.deadlineNanos - startNanos) / tickNanos;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+            // 已经过期的任务放入当前的槽，本刻度执行
+            wheel[(int) (Math.max(calculated, tick) & mask)].add(timeout);
+            count++;
+        }
+
+        /**
+         * 执行槽中到期的任务，移除已取消的任务
+         */
+        private void expire(Bucket bucket, long deadline) {
+            Timeout<?> timeout = bucket.head;
+            while (timeout != null) {
+                Timeout<?> next = timeout.next;
+                if (timeout.isCancelled()) {
+                    bucket.remove(timeout);
+                    count--;
+                } else if (timeout.remainingRounds <= 0 && timeout.deadlineNanos - deadline <= 0) {
+                    bucket.remove(timeout);
+                    count--;
+                    fire(timeout);
+                } else if (timeout.remainingRounds > 0) {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        private void fire(Timeout<?> timeout) {
+            pending.lazySet(count);
+            if (!timeout.isPeriodic()) {
+                timeout.run();
+                // cancel(true)会中断正在执行任务的工作线程，清除中断标记，否则之后的park立即返回、任务都在中断状态下执行
+                Thread.interrupted();
+                return;
+            }
+            boolean reschedule = state == RUNNING && timeout.runAndReschedule();
+            Thread.interrupted();
+            if (reschedule) {
+                // 下一次的到期时间可能就在本刻度，本次循环结束后再放入槽中，避免重复执行
+                rescheduled.add(timeout);
+            } else {
+                timeout.cancel(false);
+            }
+        }
+
+        /**
+         * 关闭后周期任务不再继续，一次性任务照常执行
+         */
+        private void cancelPeriodic() {
+            for (Bucket bucket : wheel) {
+                for (Timeout<?> timeout = bucket.head; timeout != null; timeout = timeout.next) {
+                    if (timeout.isPeriodic()) {
+                        timeout.cancel(false);
+                    }
+                }
+            }
+            for (Timeout<?> timeout = head.nextAdded; timeout != null; timeout = timeout.nextAdded) {
+                if (timeout.isPeriodic()) {
+                    timeout.cancel(false);
+                }
+            }
+        }
+
+        private List<Runnable> drainUnprocessed() {
+            List<Runnable> tasks = new ArrayList<>();
+            for (Bucket bucket : wheel) {
+                for (Timeout<?> timeout = bucket.head; timeout != null; timeout = timeout.next) {
+                    if (!timeout.isCancelled()) {
+                        tasks.add(timeout);
+                    }
+                }
+            }
+            for (Timeout<?> timeout = head.nextAdded; timeout != null; timeout = timeout.nextAdded) {
+                if (!timeout.isCancelled()) {
+                    tasks.add(timeout);
+                }
+            }
+            return tasks;
+        }
+    }
+
+    /**
+     * 一个槽，任务的双向链表
+     */
+    private static final class Bucket {
+
+        private Timeout<?> head;
+
+        private Timeout<?> tail;
+
+        private void add(Timeout<?> timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        private void remove(Timeout<?> timeout) {
+            Timeout<?> next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+
+    /**
+     * 一个定时任务
+     */
+    private final class Timeout<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+
+        /**
+         * 大于0为固定频率，小于0为固定延时，0为一次性任务
+         */
+        private final long periodNanos;
+
+        private volatile long deadlineNanos;
+
+        /**
+         * 新添加的任务队列中的下一个任务
+         */
+        private volatile Timeout<?> nextAdded;
+
+        /**
+         * 以下字段只由工作线程访问
+         */
+        private long remainingRounds;
+
+        private Bucket bucket;
+
+        private Timeout<?> prev;
+
+        private Timeout<?> next;
+
+        private Timeout(Runnable runnable, V result, long deadlineNanos, long periodNanos) {
+            super(runnable, result);
+            this.deadlineNanos = deadlineNanos;
+            this.periodNanos = periodNanos;
+        }
+
+        private Timeout(Callable<V> callable, long deadlineNanos, long periodNanos) {
+            super(callable);
+            this.deadlineNanos = deadlineNanos;
+            this.periodNanos = periodNanos;
+        }
+
+        @Override
+        public boolean isPeriodic() {
+            return periodNanos != 0;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other == this) {
+                return 0;
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        /**
+         * 执行周期任务并计算下一次的到期时间
+         *
+         * @return 任务抛出异常或已取消时返回false
+         */
+        private boolean runAndReschedule() {
+            if (!runAndReset()) {
+                return false;
+            }
+            deadlineNanos = periodNanos > 0 ? deadlineNanos + periodNanos : System.nanoTime() - periodNanos;
+            return true;
+        }
+    }
+
+    public static class Builder {
+
+        private Duration tickDuration = Duration.ofMillis(1);
+
+        private int ticksPerWheel = 512;
+
+        private String threadName;
+
+        /**
+         * 刻度，即任务执行时间的精度，默认1毫秒
+         */
+        public Builder tickDuration(Duration tickDuration) {
+            if (tickDuration == null || tickDuration.isNegative() || tickDuration.isZero()) {
+                throw new IllegalArgumentException("tickDuration must be positive");
+            }
+            this.tickDuration = tickDuration;
+            return this;
+        }
+
+        /**
+         * 一圈的槽数，向上取整到2的幂，默认512
+         */
+        public Builder ticksPerWheel(int ticksPerWheel) {
+            if (ticksPerWheel <= 0 || ticksPerWheel > 1 << 30) {
+                throw new IllegalArgumentException("ticksPerWheel must be between 1 and 2^30");
+            }
+            this.ticksPerWheel = ticksPerWheel;
+            return this;
+        }
+
+        /**
+         * 工作线程的名称
+         */
+        public Builder threadName(String threadName) {
+            if (threadName == null) {
+                throw new IllegalArgumentException("threadName must not be null");
+            }
+            this.threadName = threadName;
+            return this;
+        }
+
+        public HashedWheelTimer build() {
+            return new HashedWheelTimer(this);
+        }
+    }
+}
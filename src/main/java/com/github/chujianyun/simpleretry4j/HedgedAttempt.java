@@ -0,0 +1,190 @@
+package com.github.chujianyun.simpleretry4j;
+
+import com.github.chujianyun.simpleretry4j.exception.ResultRejectedException;
+import com.github.chujianyun.simpleretry4j.hedge.HedgePolicy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 一次对冲的尝试
+ * <p>
+ * 先发起一次尝试，每经过对冲延时还没有结束就再发起一次，最多额外发起maxHedges次。
+ * 第一个不需要重试的返回值或不需要重试的异常作为结果，其余尝试被取消；
+ * 所有已发起的尝试都需要重试时，以最后结束的尝试作为结果，由重试引擎决定是否重试。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 21:05
+ */
+final class HedgedAttempt<T> {
+
+    private final Supplier<CompletionStage<T>> supplier;
+
+    private final CompiledRetryPolicy retryPolicy;
+
+    private final HedgePolicy hedgePolicy;
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * 是否按终止条件判断返回值，无返回值的操作不判断
+     */
+    private final boolean checkResult;
+
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+
+    /**
+     * 已发起的尝试，用于结束时取消，由this保护
+     */
+    private final List<CompletionStage<T>> stages = new ArrayList<>();
+
+    private int started;
+
+    private int finished;
+
+    /**
+     * 已调度但还未发起的对冲
+     */
+    private Future<?> pendingHedge;
+
+    HedgedAttempt(Supplier<CompletionStage<T>> supplier, CompiledRetryPolicy retryPolicy, ScheduledExecutorService scheduler,
+                  boolean checkResult) {
+        this.supplier = supplier;
+        this.retryPolicy = retryPolicy;
+        this.hedgePolicy = retryPolicy.getHedgePolicy();
+        this.scheduler = scheduler;
+        this.checkResult = checkResult;
+    }
+
+    CompletableFuture<T> start() {
+        result.whenComplete((value, throwable) -> cancelAll());
+        launch();
+        return result;
+    }
+
+    private void launch() {
+        synchronized (this) {
+            pendingHedge = null;
+            if (result.isDone()) {
+                return;
+            }
+            started++;
+        }
+
+        long startNanos = System.nanoTime();
+        CompletionStage<T> stage;
+        try {
+            stage = supplier.get();
+            if (stage == null) {
+                throw new NullPointerException("异步操作返回的CompletionStage不能为空");
+            }
+        } catch (Throwable t) {
+            onOutcome(null, t);
+            return;
+        }
+
+        synchronized (this) {
+            stages.add(stage);
+        }
+        if (result.isDone()) {
+            cancel(stage);
+            return;
+        }
+        stage.whenComplete((value, throwable) -> {
+            if (throwable == null) {
+                hedgePolicy.recordLatency(System.nanoTime() - startNanos);
+            }
+            onOutcome(value, throwable);
+        });
+        scheduleHedge();
+    }
+
+    private void scheduleHedge() {
+        synchronized (this) {
+            if (started > hedgePolicy.getMaxHedges() || result.isDone()) {
+                return;
+            }
+            try {
+                pendingHedge = scheduler.schedule(this::launch, hedgePolicy.getDelayNanos(), TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // 定时器已关闭时不再对冲，只等待已发起的尝试
+            }
+        }
+    }
+
+    private void onOutcome(T value, Throwable throwable) {
+        boolean last;
+        synchronized (this) {
+            finished++;
+            last = finished == started;
+        }
+
+        if (throwable == null) {
+            try {
+                ResultDecision decision = checkResult ? retryPolicy.classifyResult(value) : ResultDecision.ABORT;
+                if (decision == ResultDecision.ABORT) {
+                    result.complete(value);
+                    return;
+                }
+                if (decision == ResultDecision.FAIL) {
+                    result.completeExceptionally(new ResultRejectedException(value));
+                    return;
+                }
+            } catch (Exception e) {
+                throwable = e;
+            }
+        } else {
+            throwable = unwrap(throwable);
+            if (throwable instanceof Exception && retryPolicy.isAbortException((Exception) throwable)) {
+                result.completeExceptionally(throwable);
+                return;
+            }
+        }
+
+        // 没有其他进行中的尝试时不再等待对冲，交给重试引擎按退避策略重试
+        if (last) {
+            if (throwable == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(throwable);
+            }
+        }
+    }
+
+    private void cancelAll() {
+        List<CompletionStage<T>> toCancel;
+        synchronized (this) {
+            if (pendingHedge != null) {
+                pendingHedge.cancel(false);
+                pendingHedge = null;
+            }
+            toCancel = new ArrayList<>(stages);
+        }
+        for (CompletionStage<T> stage : toCancel) {
+            cancel(stage);
+        }
+    }
+
+    private static void cancel(CompletionStage<?> stage) {
+        if (stage instanceof Future) {
+            ((Future<?>) stage).cancel(true);
+        }
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        if ((throwable instanceof CompletionException || throwable instanceof ExecutionException)
+                && throwable.getCause() != null) {
+            return throwable.getCause();
+        }
+        return throwable;
+    }
+}
@@ -0,0 +1,312 @@
+package com.github.chujianyun.simpleretry4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 带类型的返回值分类
+ * <p>
+ * 按添加的顺序依次判断条件，第一个满足的条件决定返回值是重试、直接返回还是失败，都不满足时按otherwise处理。
+ * 构建时相邻的结论相同的条件合并为一个条件，整个规则列表组合为一个分类函数，
+ * 判断时不遍历列表也没有未检查的类型转换；按状态码等基本类型判断时使用IntPredicate或LongPredicate，不装箱，
+ * 相邻的使用同一个取值函数的条件只取一次值。
+ * <p>
+ * 返回值为null时不调用任何条件，按onNull处理，未设置时按otherwise处理，条件中不需要判空。
+ * 构建后不可修改，可以在多个线程和多个重试策略之间共享。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-19 05:00
+ */
+public final class ResultClassifier<T> {
+
+    private final Rule<T> rule;
+
+    private final ResultDecision nullDecision;
+
+    /**
+     * 返回值为null时也调用条件，只用于兼容abortConditions
+     */
+    private final boolean testNull;
+
+    private ResultClassifier(Builder<T> builder) {
+        this.rule = compile(builder.conditions, builder.otherwise);
+        this.nullDecision = builder.nullDecision != null ? builder.nullDecision : builder.otherwise;
+        this.testNull = builder.testNull;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * 把abortConditions转换为分类：满足任一条件则直接返回，否则重试，null也交给条件判断
+     */
+    @SuppressWarnings("unchecked")
+    static ResultClassifier<Object> fromAbortConditions(List<Predicate> abortConditions) {
+        Builder<Object> builder = new Builder<>();
+        for (Predicate predicate : abortConditions) {
+            builder.abortIf(predicate);
+        }
+        builder.testNull = true;
+        return builder.otherwise(ResultDecision.RETRY).build();
+    }
+
+    /**
+     * 对返回值分类
+     *
+     * @param result 返回值，可以为null
+     * @throws RuntimeException 条件抛出的异常
+     */
+    public ResultDecision classify(T result) {
+        if (result == null && !testNull) {
+            return nullDecision;
+        }
+        return rule.classify(result);
+    }
+
+    /**
+     * 从后往前把每组结论相同的相邻条件包装为一个分类函数，满足时返回本组的结论，否则交给下一组
+     */
+    private static <T> Rule<T> compile(List<Condition<T>> conditions, ResultDecision otherwise) {
+        Rule<T> rule = result -> otherwise;
+        int end = conditions.size();
+        while (end > 0) {
+            ResultDecision decision = conditions.get(end - 1).decision;
+            int start = end - 1;
+            while (start > 0 && conditions.get(start - 1).decision == decision) {
+                start--;
+            }
+            Predicate<? super T> predicate = anyOf(conditions.subList(start, end));
+            Rule<T> next = rule;
+            rule = result -> predicate.test(result) ? decision : next.classify(result);
+            end = start;
+        }
+        return rule;
+    }
+
+    /**
+     * 合并一组条件，相邻的使用同一个取值函数的基本类型条件合并为一个，只取一次值
+     */
+    private static <T> Predicate<? super T> anyOf(List<Condition<T>> conditions) {
+        List<Predicate<? super T>> predicates = new ArrayList<>();
+        int index = 0;
+        while (index < conditions.size()) {
+            Condition<T> condition = conditions.get(index);
+            int end = index + 1;
+            while (end < conditions.size() && condition.sameExtractor(conditions.get(end))) {
+                end++;
+            }
+            List<Condition<T>> group = conditions.subList(index, end);
+            if (condition.intExtractor != null) {
+                predicates.add(anyOfInt(condition.intExtractor, group));
+            } else if (condition.longExtractor != null) {
+                predicates.add(anyOfLong(condition.longExtractor, group));
+            } else {
+                predicates.add(condition.predicate);
+            }
+            index = end;
+        }
+        return anyOfPredicates(predicates);
+    }
+
+    private static <T> Predicate<T> anyOfInt(ToIntFunction<? super T> extractor, List<Condition<T>> group) {
+        if (group.size() == 1) {
+            IntPredicate predicate = group.get(0).intPredicate;
+            return result -> predicate.test(extractor.applyAsInt(result));
+        }
+        IntPredicate[] predicates = new IntPredicate[group.size()];
+        for (int i = 0; i < predicates.length; i++) {
+            predicates[i] = group.get(i).intPredicate;
+        }
+        return result -> {
+            int value = extractor.applyAsInt(result);
+            for (IntPredicate predicate : predicates) {
+                if (predicate.test(value)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    private static <T> Predicate<T> anyOfLong(ToLongFunction<? super T> extractor, List<Condition<T>> group) {
+        if (group.size() == 1) {
+            LongPredicate predicate = group.get(0).longPredicate;
+            return result -> predicate.test(extractor.applyAsLong(result));
+        }
+        LongPredicate[] predicates = new LongPredicate[group.size()];
+        for (int i = 0; i < predicates.length; i++) {
+            predicates[i] = group.get(i).longPredicate;
+        }
+        return result -> {
+            long value = extractor.applyAsLong(result);
+            for (LongPredicate predicate : predicates) {
+                if (predicate.test(value)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Predicate<? super T> anyOfPredicates(List<Predicate<? super T>> predicates) {
+        if (predicates.size() == 1) {
+            return predicates.get(0);
+        }
+        if (predicates.size() == 2) {
+            Predicate<? super T> first = predicates.get(0);
+            Predicate<? super T> second = predicates.get(1);
+            return (T result) -> first.test(result) || second.test(result);
+        }
+        Predicate<? super T>[] array = predicates.toArray(new Predicate[0]);
+        return (T result) -> {
+            for (Predicate<? super T> predicate : array) {
+                if (predicate.test(result)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    @FunctionalInterface
+    private interface Rule<T> {
+
+        ResultDecision classify(T result);
+    }
+
+    /**
+     * 添加的一个条件，对象条件、int条件和long条件三选一
+     */
+    private static final class Condition<T> {
+
+        private final ResultDecision decision;
+
+        private Predicate<? super T> predicate;
+
+        private ToIntFunction<? super T> intExtractor;
+
+        private IntPredicate intPredicate;
+
+        private ToLongFunction<? super T> longExtractor;
+
+        private LongPredicate longPredicate;
+
+        private Condition(ResultDecision decision) {
+            this.decision = decision;
+        }
+
+        /**
+         * 是否是使用同一个取值函数的基本类型条件
+         */
+        private boolean sameExtractor(Condition<T> other) {
+            return (intExtractor != null && intExtractor == other.intExtractor)
+                    || (longExtractor != null && longExtractor == other.longExtractor);
+        }
+    }
+
+    public static class Builder<T> {
+
+        private final List<Condition<T>> conditions = new ArrayList<>();
+
+        private ResultDecision nullDecision;
+
+        private ResultDecision otherwise = ResultDecision.ABORT;
+
+        private boolean testNull;
+
+        /**
+         * 满足条件时按decision处理
+         */
+        public Builder<T> when(Predicate<? super T> predicate, ResultDecision decision) {
+            if (predicate == null || decision == null) {
+                throw new IllegalArgumentException("predicate and decision must not be null");
+            }
+            Condition<T> condition = new Condition<>(decision);
+            condition.predicate = predicate;
+            conditions.add(condition);
+            return this;
+        }
+
+        /**
+         * 取出的int值（如状态码）满足条件时按decision处理
+         */
+        public Builder<T> whenInt(ToIntFunction<? super T> extractor, IntPredicate predicate, ResultDecision decision) {
+            if (extractor == null || predicate == null || decision == null) {
+                throw new IllegalArgumentException("extractor, predicate and decision must not be null");
+            }
+            Condition<T> condition = new Condition<>(decision);
+            condition.intExtractor = extractor;
+            condition.intPredicate = predicate;
+            conditions.add(condition);
+            return this;
+        }
+
+        /**
+         * 取出的long值满足条件时按decision处理
+         */
+        public Builder<T> whenLong(ToLongFunction<? super T> extractor, LongPredicate predicate, ResultDecision decision) {
+            if (extractor == null || predicate == null || decision == null) {
+                throw new IllegalArgumentException("extractor, predicate and decision must not be null");
+            }
+            Condition<T> condition = new Condition<>(decision);
+            condition.longExtractor = extractor;
+            condition.longPredicate = predicate;
+            conditions.add(condition);
+            return this;
+        }
+
+        /**
+         * 满足条件时重试
+         */
+        public Builder<T> retryIf(Predicate<? super T> predicate) {
+            return when(predicate, ResultDecision.RETRY);
+        }
+
+        /**
+         * 满足条件时直接返回
+         */
+        public Builder<T> abortIf(Predicate<? super T> predicate) {
+            return when(predicate, ResultDecision.ABORT);
+        }
+
+        /**
+         * 满足条件时抛出 {@link com.github.chujianyun.simpleretry4j.exception.ResultRejectedException}
+         */
+        public Builder<T> failIf(Predicate<? super T> predicate) {
+            return when(predicate, ResultDecision.FAIL);
+        }
+
+        /**
+         * 返回值为null时的处理，默认与otherwise相同
+         */
+        public Builder<T> onNull(ResultDecision decision) {
+            if (decision == null) {
+                throw new IllegalArgumentException("decision must not be null");
+            }
+            this.nullDecision = decision;
+            return this;
+        }
+
+        /**
+         * 所有条件都不满足时的处理，默认直接返回
+         */
+        public Builder<T> otherwise(ResultDecision decision) {
+            if (decision == null) {
+                throw new IllegalArgumentException("decision must not be null");
+            }
+            this.otherwise = decision;
+            return this;
+        }
+
+        public ResultClassifier<T> build() {
+            return new ResultClassifier<>(this);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.chujianyun.simpleretry4j;
+
+/**
+ * 返回值的分类结果
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-19 05:00
+ * @see ResultClassifier
+ */
+public enum ResultDecision {
+
+    /**
+     * 需要重试，不能再重试时返回最后一次的返回值
+     */
+    RETRY,
+
+    /**
+     * 不需要重试，直接返回
+     */
+    ABORT,
+
+    /**
+     * 不可接受且重试也没有意义，抛出 {@link com.github.chujianyun.simpleretry4j.exception.ResultRejectedException}
+     */
+    FAIL
+}
@@ -1,62 +1,198 @@
 package com.github.chujianyun.simpleretry4j;
 
-import lombok.Data;
+import com.github.chujianyun.simpleretry4j.backoff.BackoffStrategy;
+import com.github.chujianyun.simpleretry4j.budget.RetryBudget;
+import com.github.chujianyun.simpleretry4j.bulkhead.Bulkhead;
+import com.github.chujianyun.simpleretry4j.circuitbreaker.CircuitBreaker;
+import com.github.chujianyun.simpleretry4j.hedge.HedgePolicy;
+import com.github.chujianyun.simpleretry4j.metrics.RetryListener;
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 import org.apache.commons.collections4.CollectionUtils;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 
 /**
  * 重试策略
+ * <p>
+ * 构建后不可修改，列表属性在构建时复制为不可修改的列表，可以作为静态常量在多个线程之间共享。
+ * 需要派生不同的策略时通过 {@link #toBuilder()} 修改后重新构建。
  *
  * @author: 明明如月 liuwangyangedu@163.com
  * @date: 2019-04-05 10:06
  */
-@Data
+@Getter
+@EqualsAndHashCode
+@ToString
 public class RetryPolicy {
 
     /**
      * 最大重试次数（如果不设置则默认不满足重试的异常或策略则无限重试）
      */
-    private Integer maxRetries;
+    private final Integer maxRetries;
 
     /**
      * 延时时间
      */
-    private Duration delayDuration;
+    private final Duration delayDuration;
+
+    /**
+     * 退避策略（不设置则使用固定的延时时间）
+     */
+    private final BackoffStrategy backoffStrategy;
+
+    /**
+     * 最大延时时间（退避策略计算出的延时不会超过该值）
+     */
+    private final Duration maxDelay;
 
     /**
      * 不需要重试的异常列表
      */
-    private List<Class<? extends Exception>> abortExceptions;
+    private final List<Class<? extends Exception>> abortExceptions;
+
+    /**
+     * 可重试的异常列表（设置后只有匹配的异常才重试，其余异常与不需要重试的异常一样直接抛出）
+     */
+    private final List<Class<? extends Exception>> retryExceptions;
+
+    /**
+     * 是否沿异常的原因链匹配异常列表（如包装在ExecutionException中的业务异常）
+     */
+    private final Boolean matchExceptionCauses;
 
     /**
      * 不需要重试的条件列表(满足其中一个则不重试,如果要传入泛型条件是返回值或者其父类类型)
      */
-    private List<Predicate> abortConditions;
+    private final List<Predicate> abortConditions;
+
+    /**
+     * 带类型的返回值分类（可以区分重试、直接返回和失败，不能与abortConditions同时设置）
+     */
+    private final ResultClassifier<?> resultClassifier;
+
+    /**
+     * 熔断器（打开时不再调用操作和等待，直接抛出 {@link com.github.chujianyun.simpleretry4j.exception.CircuitBreakerOpenException}）
+     */
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * 重试预算（预算不足时不再重试）
+     */
+    private final RetryBudget retryBudget;
+
+    /**
+     * 舱壁（每次尝试都需要获取许可，并发数已满时抛出 {@link com.github.chujianyun.simpleretry4j.exception.BulkheadFullException}）
+     */
+    private final Bulkhead bulkhead;
+
+    /**
+     * 单次尝试的超时时间（超时后中断本次尝试并按TimeoutException处理）
+     */
+    private final Duration attemptTimeout;
+
+    /**
+     * 从第一次尝试开始的总时长上限（剩余时间不够等待下一次重试时不再重试）
+     */
+    private final Duration maxDuration;
+
+    /**
+     * 对冲请求策略（一次尝试较慢时并行发起相同的尝试，取最先返回的可用结果，只适用于幂等的操作）
+     */
+    private final HedgePolicy hedgePolicy;
+
+    /**
+     * 重试过程的监听器（可用于统计尝试次数、耗时等指标）
+     */
+    private final RetryListener listener;
+
+    /**
+     * 预编译的策略，构建时生成
+     */
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final transient CompiledRetryPolicy compiled;
 
 
     public RetryPolicy(Builder builder) {
 
         this.maxRetries = builder.maxRetries;
         this.delayDuration = builder.delayDuration;
+        this.backoffStrategy = builder.backoffStrategy;
+        this.maxDelay = builder.maxDelay;
+        this.abortExceptions = copyOf(builder.abortExceptions);
+        this.retryExceptions = copyOf(builder.retryExceptions);
+        this.matchExceptionCauses = builder.matchExceptionCauses;
+        this.abortConditions = copyOf(builder.abortConditions);
+        this.resultClassifier = builder.resultClassifier;
+        this.circuitBreaker = builder.circuitBreaker;
+        this.retryBudget = builder.retryBudget;
+        this.bulkhead = builder.bulkhead;
+        this.attemptTimeout = builder.attemptTimeout;
+        this.maxDuration = builder.maxDuration;
+        this.hedgePolicy = builder.hedgePolicy;
+        this.listener = builder.listener;
 
-        List<Class<? extends Exception>> abortExceptions = builder.abortExceptions;
-        if (CollectionUtils.isEmpty(abortExceptions)) {
-            this.abortExceptions = new ArrayList<>();
-        } else {
-            this.abortExceptions = abortExceptions;
-        }
+        // 所有属性赋值后再编译，非法的参数在构建时就抛出
+        this.compiled = new CompiledRetryPolicy(this);
+    }
+
+
+    /**
+     * 计算第retryCount次重试前的延时
+     *
+     * @param retryCount      第几次重试，从1开始
+     * @param lastDelayMillis 上一次重试的延时（毫秒），第一次重试时为0
+     * @return 延时的毫秒数
+     */
+    public long nextDelayMillis(int retryCount, long lastDelayMillis) {
+        return compiled.nextDelayMillis(retryCount, lastDelayMillis);
+    }
+
+    /**
+     * 获取预编译的策略
+     */
+    CompiledRetryPolicy compiled() {
+        return compiled;
+    }
+
+    /**
+     * 以当前策略的所有属性创建Builder，用于派生新的策略，不影响当前策略
+     */
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        builder.maxRetries = maxRetries;
+        builder.delayDuration = delayDuration;
+        builder.backoffStrategy = backoffStrategy;
+        builder.maxDelay = maxDelay;
+        builder.abortExceptions.addAll(abortExceptions);
+        builder.retryExceptions.addAll(retryExceptions);
+        builder.matchExceptionCauses = matchExceptionCauses;
+        builder.abortConditions.addAll(abortConditions);
+        builder.resultClassifier = resultClassifier;
+        builder.circuitBreaker = circuitBreaker;
+        builder.retryBudget = retryBudget;
+        builder.bulkhead = bulkhead;
+        builder.attemptTimeout = attemptTimeout;
+        builder.maxDuration = maxDuration;
+        builder.hedgePolicy = hedgePolicy;
+        builder.listener = listener;
+        return builder;
+    }
 
-        List<Predicate> abortConditions = builder.abortConditions;
-        if (CollectionUtils.isEmpty(abortConditions)) {
-            this.abortConditions = new ArrayList<>();
-        } else {
-            this.abortConditions = abortConditions;
+    private static <E> List<E> copyOf(List<E> list) {
+        if (CollectionUtils.isEmpty(list)) {
+            return Collections.emptyList();
         }
+        return Collections.unmodifiableList(new ArrayList<>(list));
     }
 
 
@@ -70,10 +206,34 @@ public class RetryPolicy {
 
         private Duration delayDuration;
 
+        private BackoffStrategy backoffStrategy;
+
+        private Duration maxDelay;
+
         private List<Class<? extends Exception>> abortExceptions = new ArrayList<>();
 
+        private List<Class<? extends Exception>> retryExceptions = new ArrayList<>();
+
+        private Boolean matchExceptionCauses;
+
         private List<Predicate> abortConditions = new ArrayList<>();
 
+        private ResultClassifier<?> resultClassifier;
+
+        private CircuitBreaker circuitBreaker;
+
+        private RetryBudget retryBudget;
+
+        private Bulkhead bulkhead;
+
+        private Duration attemptTimeout;
+
+        private Duration maxDuration;
+
+        private HedgePolicy hedgePolicy;
+
+        private RetryListener listener;
+
 
         /**
          * 设置最大重试次数（如果不设置则默认不满足重试的异常或策略则无限重试）
@@ -112,6 +272,30 @@ public class RetryPolicy {
             return this;
         }
 
+        /**
+         * 设置退避策略，设置后优先于固定的时间间隔
+         *
+         * @see com.github.chujianyun.simpleretry4j.backoff.BackoffStrategies
+         */
+        public Builder backoffStrategy(BackoffStrategy backoffStrategy) {
+            if (backoffStrategy == null) {
+                throw new IllegalArgumentException("backoffStrategy must not be null");
+            }
+            this.backoffStrategy = backoffStrategy;
+            return this;
+        }
+
+        /**
+         * 设置最大延时时间
+         */
+        public Builder maxDelay(Duration maxDelay) {
+            if (maxDelay == null || maxDelay.isNegative()) {
+                throw new IllegalArgumentException("maxDelay must not be null or negative");
+            }
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
         /**
          * 设置不重试的策略列表
          */
@@ -132,6 +316,17 @@ public class RetryPolicy {
             return this;
         }
 
+        /**
+         * 设置带类型的返回值分类，代替不重试的策略列表
+         */
+        public Builder resultClassifier(ResultClassifier<?> resultClassifier) {
+            if (resultClassifier == null) {
+                throw new IllegalArgumentException("resultClassifier must not be null");
+            }
+            this.resultClassifier = resultClassifier;
+            return this;
+        }
+
         /**
          * 设置不重试的异常列表
          */
@@ -152,6 +347,113 @@ public class RetryPolicy {
             return this;
         }
 
+        /**
+         * 设置可重试的异常列表
+         */
+        public Builder retryExceptions(List<Class<? extends Exception>> retryExceptions) {
+            if (CollectionUtils.isNotEmpty(retryExceptions)) {
+                retryExceptions.forEach(this::retryException);
+            }
+            return this;
+        }
+
+        /**
+         * 新增可重试的异常，设置后只有匹配的异常才重试
+         */
+        public Builder retryException(Class<? extends Exception> exception) {
+            if (exception != null) {
+                this.retryExceptions.add(exception);
+            }
+            return this;
+        }
+
+        /**
+         * 设置是否沿异常的原因链匹配不重试和可重试的异常
+         */
+        public Builder matchExceptionCauses(boolean matchExceptionCauses) {
+            this.matchExceptionCauses = matchExceptionCauses;
+            return this;
+        }
+
+        /**
+         * 设置熔断器，多个重试策略可以共享同一个熔断器
+         */
+        public Builder circuitBreaker(CircuitBreaker circuitBreaker) {
+            if (circuitBreaker == null) {
+                throw new IllegalArgumentException("circuitBreaker must not be null");
+            }
+            this.circuitBreaker = circuitBreaker;
+            return this;
+        }
+
+        /**
+         * 设置重试预算，多个重试策略可以共享同一个重试预算以限制总的重试量
+         */
+        public Builder retryBudget(RetryBudget retryBudget) {
+            if (retryBudget == null) {
+                throw new IllegalArgumentException("retryBudget must not be null");
+            }
+            this.retryBudget = retryBudget;
+            return this;
+        }
+
+        /**
+         * 设置舱壁，多个重试策略可以共享同一个舱壁以限制对同一个依赖的总并发数
+         */
+        public Builder bulkhead(Bulkhead bulkhead) {
+            if (bulkhead == null) {
+                throw new IllegalArgumentException("bulkhead must not be null");
+            }
+            this.bulkhead = bulkhead;
+            return this;
+        }
+
+        /**
+         * 设置单次尝试的超时时间
+         */
+        public Builder attemptTimeout(Duration attemptTimeout) {
+            if (attemptTimeout == null || attemptTimeout.isNegative() || attemptTimeout.isZero()) {
+                throw new IllegalArgumentException("attemptTimeout must be positive");
+            }
+            this.attemptTimeout = attemptTimeout;
+            return this;
+        }
+
+        /**
+         * 设置包括所有重试和等待在内的总时长上限
+         */
+        public Builder maxDuration(Duration maxDuration) {
+            if (maxDuration == null || maxDuration.isNegative() || maxDuration.isZero()) {
+                throw new IllegalArgumentException("maxDuration must be positive");
+            }
+            this.maxDuration = maxDuration;
+            return this;
+        }
+
+        /**
+         * 设置对冲请求策略，多个重试策略可以共享同一个对冲策略以共同学习耗时
+         */
+        public Builder hedgePolicy(HedgePolicy hedgePolicy) {
+            if (hedgePolicy == null) {
+                throw new IllegalArgumentException("hedgePolicy must not be null");
+            }
+            this.hedgePolicy = hedgePolicy;
+            return this;
+        }
+
+        /**
+         * 设置重试过程的监听器
+         *
+         * @see com.github.chujianyun.simpleretry4j.metrics.RetryMetrics
+         */
+        public Builder listener(RetryListener listener) {
+            if (listener == null) {
+                throw new IllegalArgumentException("listener must not be null");
+            }
+            this.listener = listener;
+            return this;
+        }
+
         public RetryPolicy build() {
             return new RetryPolicy(this);
         }
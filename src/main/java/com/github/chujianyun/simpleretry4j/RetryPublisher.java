@@ -0,0 +1,66 @@
+package com.github.chujianyun.simpleretry4j;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * 按重试策略重试的Reactive Streams发布者
+ * <p>
+ * 上游发出错误时按重试策略决定把错误传给下游，还是在定时器上延时后重新订阅上游，等待期间不占用线程。
+ * 重新订阅后只向新的上游请求下游还未满足的数量，已经发出的元素不会撤回，
+ * 因此上游应当只发出一个元素，或者重新订阅时从失败处继续。
+ * <p>
+ * 熔断器、重试预算、舱壁、总时长和监听器照常生效；终止条件、单次超时和对冲针对单个返回值，这里不生效。
+ * 需要依赖reactive-streams，不依赖具体的响应式框架。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 23:40
+ */
+public final class RetryPublisher<T> implements Publisher<T> {
+
+    private final Publisher<T> source;
+
+    private final RetryPolicy retryPolicy;
+
+    private final ScheduledExecutorService scheduler;
+
+    private RetryPublisher(Publisher<T> source, RetryPolicy retryPolicy, ScheduledExecutorService scheduler) {
+        this.source = source;
+        this.retryPolicy = retryPolicy;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 出错时按重试策略重新订阅上游，重试由共享的定时器调度
+     *
+     * @param source      上游，每次重试都会重新订阅
+     * @param retryPolicy 重试策略
+     */
+    public static <T> RetryPublisher<T> of(Publisher<T> source, RetryPolicy retryPolicy) {
+        return of(source, retryPolicy, RetryScheduler.shared());
+    }
+
+    /**
+     * 出错时按重试策略重新订阅上游，使用指定的定时器调度重试
+     *
+     * @param source      上游，每次重试都会重新订阅
+     * @param retryPolicy 重试策略
+     * @param scheduler   调度重试的定时器
+     */
+    public static <T> RetryPublisher<T> of(Publisher<T> source, RetryPolicy retryPolicy, ScheduledExecutorService scheduler) {
+        if (source == null || retryPolicy == null || scheduler == null) {
+            throw new NullPointerException("上游、重试策略和定时器不能为空");
+        }
+        return new RetryPublisher<>(source, retryPolicy, scheduler);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("订阅者不能为空");
+        }
+        new RetrySubscription<>(source, retryPolicy.compiled(), scheduler, subscriber).start();
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.chujianyun.simpleretry4j;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步重试共享的定时器
+ * <p>
+ * 所有异步重试的下一次尝试都由该定时器调度，等待期间不占用任何线程。
+ * 响应式的重试和分批、微批合并和延迟重试队列也默认使用该定时器。
+ * <p>
+ * 默认是刻度为1毫秒的 {@link HashedWheelTimer}，大量并发的重试定时任务添加和取消都是O(1)；
+ * 设置系统属性 simpleretry4j.timingWheel=false 时使用单线程的 {@link ScheduledThreadPoolExecutor}。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 09:12
+ */
+public final class RetryScheduler {
+
+    private static final String TIMING_WHEEL_PROPERTY = "simpleretry4j.timingWheel";
+
+    private RetryScheduler() {
+    }
+
+    /**
+     * 获取共享的定时器（首次使用时创建）
+     */
+    public static ScheduledExecutorService shared() {
+        return Holder.SCHEDULER;
+    }
+
+    private static class Holder {
+
+        private static final ScheduledExecutorService SCHEDULER = create();
+
+        private static ScheduledExecutorService create() {
+            if (Boolean.parseBoolean(System.getProperty(TIMING_WHEEL_PROPERTY, "true"))) {
+                return HashedWheelTimer.builder().threadName("simple-retry4j-timer").build();
+            }
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory());
+            // 取消的任务立即从队列移除，避免大量取消的重试堆积在队列中
+            executor.setRemoveOnCancelPolicy(true);
+            return executor;
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger index = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "simple-retry4j-timer-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package com.github.chujianyun.simpleretry4j;
+
+import com.github.chujianyun.simpleretry4j.exception.BulkheadFullException;
+import com.github.chujianyun.simpleretry4j.exception.CircuitBreakerOpenException;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 一次订阅的重试过程
+ * <p>
+ * 下游的请求数量和当前的上游订阅由drain串行处理：请求累加到missedRequested，
+ * 新的上游订阅放入missedSubscription，只有进入drain的线程修改requested和actual并向上游请求，
+ * 因此重新订阅时不会向上游多请求。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 23:40
+ */
+@Slf4j
+final class RetrySubscription<T> implements Subscription {
+
+    private final Publisher<T> source;
+
+    private final CompiledRetryPolicy retryPolicy;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Subscriber<? super T> downstream;
+
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private final AtomicLong missedRequested = new AtomicLong();
+
+    private final AtomicLong missedProduced = new AtomicLong();
+
+    private final AtomicReference<Subscription> missedSubscription = new AtomicReference<>();
+
+    /**
+     * 下游还未满足的请求数量，只在drain中访问
+     */
+    private long requested;
+
+    /**
+     * 当前的上游订阅，只在drain中访问
+     */
+    private Subscription actual;
+
+    private volatile boolean cancelled;
+
+    /**
+     * 本次尝试是否持有舱壁许可，取消与上游结束可能并发，只释放一次
+     */
+    private final AtomicBoolean permitHeld = new AtomicBoolean();
+
+    private long permitNanos;
+
+    /**
+     * 本次尝试是否持有熔断器许可且还未记录结果，取消时归还许可，与上游结束并发时只处理一次
+     */
+    private final AtomicBoolean permissionHeld = new AtomicBoolean();
+
+    /**
+     * 已调度但还未执行的下一次尝试，用于取消时撤销
+     */
+    private volatile Future<?> pendingAttempt;
+
+    /**
+     * 以下字段只在上一次尝试结束后、下一次尝试开始前访问，由定时器保证可见性
+     */
+    private int retryCount;
+
+    private long lastDelayMillis;
+
+    private Exception lastFailure;
+
+    private long deadlineNanos;
+
+    private long attemptStartNanos;
+
+    RetrySubscription(Publisher<T> source, CompiledRetryPolicy retryPolicy, ScheduledExecutorService scheduler,
+                      Subscriber<? super T> downstream) {
+        this.source = source;
+        this.retryPolicy = retryPolicy;
+        this.scheduler = scheduler;
+        this.downstream = downstream;
+    }
+
+    void start() {
+        downstream.onSubscribe(this);
+        if (retryPolicy.hasTimeLimit()) {
+            deadlineNanos = retryPolicy.deadlineNanos(System.nanoTime());
+        }
+        attempt();
+    }
+
+    @Override
+    public void request(long n) {
+        if (n <= 0) {
+            cancel();
+            downstream.onError(new IllegalArgumentException("请求的数量必须大于0"));
+            return;
+        }
+        addCap(missedRequested, n);
+        drain();
+    }
+
+    @Override
+    public void cancel() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+        Future<?> pending = pendingAttempt;
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        releasePermit();
+        if (permissionHeld.compareAndSet(true, false)) {
+            retryPolicy.releasePermission();
+        }
+        drain();
+    }
+
+    private void attempt() {
+        pendingAttempt = null;
+        if (cancelled) {
+            return;
+        }
+
+        // 熔断器打开时快速失败
+        try {
+            retryPolicy.acquirePermission(lastFailure);
+        } catch (CircuitBreakerOpenException e) {
+            downstream.onError(e);
+            return;
+        }
+        permissionHeld.set(true);
+
+        // 舱壁已满时快速失败，不等待许可以免阻塞定时器线程
+        try {
+            permitNanos = retryPolicy.tryAcquireBulkhead(retryCount + 1, lastFailure);
+            permitHeld.set(true);
+        } catch (BulkheadFullException e) {
+            // 本次尝试没有执行，归还熔断器的许可
+            permissionHeld.set(false);
+            retryPolicy.releasePermission();
+            downstream.onError(e);
+            return;
+        }
+
+        attemptStartNanos = retryPolicy.attemptStarted(retryCount + 1);
+        AttemptSubscriber subscriber = new AttemptSubscriber();
+        try {
+            source.subscribe(subscriber);
+        } catch (Throwable t) {
+            subscriber.onError(t);
+        }
+    }
+
+    private void onAttemptComplete() {
+        releasePermit();
+        retryPolicy.attemptSucceeded(retryCount + 1, attemptStartNanos);
+        if (permissionHeld.compareAndSet(true, false)) {
+            retryPolicy.onSuccess();
+        }
+        if (!cancelled) {
+            downstream.onComplete();
+        }
+    }
+
+    private void onAttemptError(Throwable throwable, long produced) {
+        releasePermit();
+        retryPolicy.attemptFailed(retryCount + 1, throwable, attemptStartNanos);
+        boolean held = permissionHeld.compareAndSet(true, false);
+        if (cancelled) {
+            // 取消后的结果不再记录，许可由先执行的一方归还
+            if (held) {
+                retryPolicy.releasePermission();
+            }
+            return;
+        }
+
+        // 非Exception的错误（如Error）与同步版本一致，不重试
+        if (!(throwable instanceof Exception)) {
+            retryPolicy.onFailure();
+            downstream.onError(throwable);
+            return;
+        }
+
+        /* ---------------- 不需要重试的异常 -------------- */
+        Exception e = (Exception) throwable;
+        if (retryPolicy.isAbortException(e)) {
+            retryPolicy.abortedByException(retryCount + 1, e);
+            retryPolicy.onAbortException();
+            downstream.onError(e);
+            return;
+        }
+
+        /* ---------------- 需要重试的异常 -------------- */
+        retryPolicy.onFailure();
+        // 本次尝试已发出的元素从下游的请求中扣除，下一次订阅只请求剩余的数量
+        if (produced > 0) {
+            missedProduced.addAndGet(produced);
+            drain();
+        }
+        if (!scheduleNextAttempt(e)) {
+            retryPolicy.exhausted(retryCount, e);
+            downstream.onError(e);
+        }
+    }
+
+    /**
+     * 如果还有下一次重试则在定时器上调度
+     *
+     * @return 没有下一次重试时返回false，由调用方结束
+     */
+    private boolean scheduleNextAttempt(Exception failure) {
+        if (!retryPolicy.canRetry(++retryCount)) {
+            return false;
+        }
+
+        // 熔断器已打开则不再等待
+        try {
+            retryPolicy.checkPermitted(failure);
+        } catch (CircuitBreakerOpenException e) {
+            downstream.onError(e);
+            return true;
+        }
+
+        long delayMillis = retryPolicy.nextDelayMillis(retryCount, lastDelayMillis);
+        // 等待之后已经超过总时长则不再重试
+        if (!retryPolicy.canMeetDeadline(deadlineNanos, delayMillis)) {
+            return false;
+        }
+        // 重试预算不足则不再重试
+        if (!retryPolicy.tryAcquireRetry()) {
+            return false;
+        }
+        lastFailure = failure;
+        lastDelayMillis = delayMillis;
+        if (log.isDebugEnabled()) {
+            log.debug("第{}次重试，延时{}毫秒", retryCount, delayMillis);
+        }
+        retryPolicy.retryScheduled(retryCount, delayMillis);
+
+        // 即使不延时也交给定时器执行，避免同步结束的上游层层递归
+        try {
+            pendingAttempt = scheduler.schedule(this::attempt, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            downstream.onError(e);
+            return true;
+        }
+        if (cancelled) {
+            pendingAttempt.cancel(false);
+        }
+        return true;
+    }
+
+    private void releasePermit() {
+        if (permitHeld.compareAndSet(true, false)) {
+            retryPolicy.releaseBulkhead(permitNanos);
+        }
+    }
+
+    private void setSubscription(Subscription subscription) {
+        missedSubscription.set(subscription);
+        drain();
+    }
+
+    /**
+     * 串行处理下游的请求、已发出的数量和新的上游订阅
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        long requestAmount = 0;
+        Subscription requestTarget = null;
+        while (true) {
+            Subscription subscription = missedSubscription.getAndSet(null);
+            long missedRequest = missedRequested.getAndSet(0);
+            long produced = missedProduced.getAndSet(0);
+
+            if (cancelled) {
+                if (actual != null) {
+                    actual.cancel();
+                    actual = null;
+                }
+                if (subscription != null) {
+                    subscription.cancel();
+                }
+                requestAmount = 0;
+            } else {
+                long r = requested;
+                if (r != Long.MAX_VALUE) {
+                    r = addCap(r, missedRequest);
+                    if (r != Long.MAX_VALUE) {
+                        r = Math.max(0, r - produced);
+                    }
+                    requested = r;
+                }
+
+                if (subscription != null) {
+                    // 新的上游只请求下游还未满足的数量
+                    actual = subscription;
+                    requestTarget = subscription;
+                    requestAmount = r;
+                } else if (actual != null && missedRequest != 0) {
+                    requestTarget = actual;
+                    requestAmount = addCap(requestAmount, missedRequest);
+                }
+            }
+
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+                if (requestAmount != 0) {
+                    requestTarget.request(requestAmount);
+                }
+                return;
+            }
+        }
+    }
+
+    private static long addCap(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    private static void addCap(AtomicLong value, long n) {
+        while (true) {
+            long current = value.get();
+            if (current == Long.MAX_VALUE || value.compareAndSet(current, addCap(current, n))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 一次尝试的订阅者，上游的信号是串行的，不需要同步
+     */
+    private final class AttemptSubscriber implements Subscriber<T> {
+
+        private long produced;
+
+        private boolean done;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            if (subscription == null) {
+                throw new NullPointerException("上游的订阅不能为空");
+            }
+            setSubscription(subscription);
+        }
+
+        @Override
+        public void onNext(T item) {
+            if (done) {
+                return;
+            }
+            produced++;
+            downstream.onNext(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (done) {
+                return;
+            }
+            done = true;
+            onAttemptError(throwable, produced);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            onAttemptComplete();
+        }
+    }
+}
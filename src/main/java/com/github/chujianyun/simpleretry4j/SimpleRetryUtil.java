@@ -1,13 +1,14 @@
 package com.github.chujianyun.simpleretry4j;
 
+import com.github.chujianyun.simpleretry4j.exception.ResultRejectedException;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.collections4.CollectionUtils;
 
-import java.time.Duration;
-import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Consumer;
-import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * 方法重试工具类
@@ -33,6 +34,36 @@ public class SimpleRetryUtil {
         return executeWithRetry(callable, null, null, retryPolicy);
     }
 
+    /**
+     * 异步带返回值的重试方法
+     * <p>
+     * 每次重试由共享的定时器调度，重试间隔期间不占用调用线程。
+     * supplier应当是非阻塞的，重试时会在定时器线程上调用。
+     *
+     * @param supplier    返回异步结果的操作
+     * @param retryPolicy 重试策略
+     * @return 最终结果，业务异常或者超过最大重试次数后的最后一次尝试的异常会以异常结束的方式返回
+     */
+    public static <T> CompletableFuture<T> executeWithRetryAsync(Supplier<CompletionStage<T>> supplier, RetryPolicy retryPolicy) {
+        return executeWithRetryAsync(supplier, retryPolicy, RetryScheduler.shared());
+    }
+
+    /**
+     * 异步带返回值的重试方法，使用指定的定时器调度重试
+     *
+     * @param supplier    返回异步结果的操作
+     * @param retryPolicy 重试策略
+     * @param scheduler   调度重试的定时器
+     * @return 最终结果
+     */
+    public static <T> CompletableFuture<T> executeWithRetryAsync(Supplier<CompletionStage<T>> supplier, RetryPolicy retryPolicy,
+                                                                 ScheduledExecutorService scheduler) {
+        if (supplier == null || retryPolicy == null || scheduler == null) {
+            throw new NullPointerException("异步操作、重试策略和定时器不能为空");
+        }
+        return new AsyncRetryExecutor<>(supplier, retryPolicy.compiled(), scheduler).start();
+    }
+
 
     /**
      * 带重试和延时的操作执行
@@ -40,112 +71,171 @@ public class SimpleRetryUtil {
      * @param callable    执行的操作
      * @param retryPolicy 重试策略
      * @return 返回值
-     * @throws Exception 业务异常或者超过最大重试次数后的最后一次尝试抛出的异常
+     * @throws Exception 业务异常或者超过最大重试次数后的最后一次尝试抛出的异常，熔断器打开时抛出CircuitBreakerOpenException
      */
     private static <T> T executeWithRetry(Callable<T> callable, Consumer<T> consumer, T data, RetryPolicy retryPolicy) throws Exception {
 
-        // 最大重试次数
-        Integer maxRetries = retryPolicy.getMaxRetries();
-
-        if (maxRetries != null && maxRetries < 0) {
-            throw new IllegalArgumentException("最大重试次数不能为负数");
-        }
+        // 预编译的策略，第一次就成功时不产生对象分配
+        CompiledRetryPolicy policy = retryPolicy.compiled();
 
         int retryCount = 0;
-        Duration delayDuration = retryPolicy.getDelayDuration();
+        long lastDelayMillis = 0;
+        Exception lastFailure = null;
+        // 总时长的截止时间
+        long deadlineNanos = policy.hasTimeLimit() ? policy.deadlineNanos(System.nanoTime()) : 0;
 
         while (true) {
+            // 熔断器打开时快速失败
+            policy.acquirePermission(lastFailure);
+
+            int attempt = retryCount + 1;
+            // 舱壁已满时快速失败，重试的每次尝试都需要获取许可
+            long permitNanos;
             try {
+                permitNanos = policy.acquireBulkhead(attempt, lastFailure);
+            } catch (Exception e) {
+                policy.releasePermission();
+                throw e;
+            }
+            T result = null;
+            Exception failure = null;
+            // 操作已正常返回，之后终止条件抛出的异常不再算作本次尝试的失败
+            boolean returned = false;
+            // 已向熔断器记录本次尝试的结果，中断、Error等没有记录结果的情况在finally中归还许可
+            boolean recorded = false;
+            long startNanos = 0;
+            try {
+                startNanos = policy.attemptStarted(attempt);
 
                 // 不带返回值的
                 if (consumer != null) {
-                    consumer.accept(data);
+                    if (policy.isHedged()) {
+                        AttemptExecutor.callHedged(() -> {
+                            consumer.accept(data);
+                            return null;
+                        }, policy, deadlineNanos, false);
+                    } else if (policy.hasTimeLimit()) {
+                        AttemptExecutor.call(() -> {
+                            consumer.accept(data);
+                            return null;
+                        }, policy.attemptTimeoutNanos(deadlineNanos));
+                    } else {
+                        consumer.accept(data);
+                    }
+                    policy.attemptSucceeded(attempt, startNanos);
+                    recorded = true;
+                    policy.onSuccess();
                     return null;
                 }
 
                 //  带返回值的
-                if (callable != null) {
-                    T result = callable.call();
-
-                    // 不设置终止条件或者设置了且满足则返回，否则还会重试
-                    List<Predicate> abortConditions = retryPolicy.getAbortConditions();
-                    /* ---------------- 不需要重试的返回值 -------------- */
-                    if (isInCondition(result, abortConditions)) {
-                        return result;
-                    }
-
-                    /* ---------------- 需要重试的返回值 -------------- */
-                    boolean hasNextRetry = hasNextRetryAfterOperation(++retryCount, maxRetries, delayDuration);
-                    if (!hasNextRetry) {
-                        return result;
-                    }
+                if (policy.isHedged()) {
+                    result = AttemptExecutor.callHedged(callable, policy, deadlineNanos, true);
+                } else if (policy.hasTimeLimit()) {
+                    result = AttemptExecutor.call(callable, policy.attemptTimeoutNanos(deadlineNanos));
+                } else {
+                    result = callable.call();
                 }
+                returned = true;
+                policy.attemptSucceeded(attempt, startNanos);
+
+                // 不设置终止条件或者设置了且满足则返回，否则还会重试
+                /* ---------------- 不需要重试的返回值 -------------- */
+                ResultDecision decision = policy.classifyResult(result);
+                if (decision == ResultDecision.ABORT) {
+                    policy.abortedByCondition(attempt, result);
+                    recorded = true;
+                    policy.onSuccess();
+                    return result;
+                }
+                // 不可接受的返回值按不需要重试的异常处理
+                if (decision == ResultDecision.FAIL) {
+                    throw new ResultRejectedException(result);
+                }
+                /* ---------------- 需要重试的返回值 -------------- */
+                recorded = true;
+                policy.onFailure();
+            } catch (InterruptedException e) {
+                // 调用线程被中断，不再重试
+                policy.attemptFailed(attempt, e, startNanos);
+                throw e;
             } catch (Exception e) {
                 /* ---------------- 不需要重试的异常 -------------- */
-                List<Class<? extends Exception>> abortExceptions = retryPolicy.getAbortExceptions();
-                if (isInExceptions(e, abortExceptions)) {
+                if (!returned) {
+                    policy.attemptFailed(attempt, e, startNanos);
+                }
+                if (policy.isAbortException(e)) {
+                    policy.abortedByException(attempt, e);
+                    recorded = true;
+                    policy.onAbortException();
                     throw e;
                 }
-
                 /* ---------------- 需要重试的异常 -------------- */
-                boolean hasNextRetry = hasNextRetryAfterOperation(++retryCount, maxRetries, delayDuration);
-                if (!hasNextRetry) {
-                    throw e;
+                failure = e;
+                recorded = true;
+                policy.onFailure();
+            } finally {
+                // 重试间隔期间不占用许可
+                policy.releaseBulkhead(permitNanos);
+                if (!recorded) {
+                    policy.releasePermission();
                 }
             }
-        }
-    }
 
-    /**
-     * 判断运行之后是否还有下一次重试
-     */
-    private static boolean hasNextRetryAfterOperation(int retryCount, Integer maxRetries, Duration delayDuration) throws InterruptedException {
-        // 有限次重试
-        if (maxRetries != null) {
-            if (retryCount > maxRetries) {
-                return false;
+            lastDelayMillis = delayBeforeNextRetry(++retryCount, policy, lastDelayMillis, failure, deadlineNanos);
+            if (lastDelayMillis < 0) {
+                policy.exhausted(retryCount, failure);
+                if (failure != null) {
+                    throw failure;
+                }
+                return result;
             }
+            lastFailure = failure;
         }
-
-        // 延时
-        if (delayDuration != null && !delayDuration.isNegative()) {
-            log.debug("延时{}毫秒", delayDuration.toMillis());
-            Thread.sleep(delayDuration.toMillis());
-        }
-        log.debug("第{}次重试", retryCount);
-        return true;
     }
 
-
     /**
-     * 是否在异常列表中
+     * 判断运行之后是否还有下一次重试，有则按退避策略延时
+     *
+     * @return 本次延时的毫秒数，没有下一次重试时返回-1
      */
-    private static boolean isInExceptions(Exception e, List<Class<? extends Exception>> abortExceptions) {
-        if (CollectionUtils.isEmpty(abortExceptions)) {
-            return false;
+    private static long delayBeforeNextRetry(int retryCount, CompiledRetryPolicy policy, long lastDelayMillis, Exception failure,
+                                             long deadlineNanos) throws InterruptedException {
+        if (!policy.canRetry(retryCount)) {
+            return -1;
         }
-        for (Class<? extends Exception> clazz : abortExceptions) {
-            if (clazz.isAssignableFrom(e.getClass())) {
-                return true;
+        // 熔断器已打开则不再等待
+        policy.checkPermitted(failure);
+
+        long delayMillis = policy.nextDelayMillis(retryCount, lastDelayMillis);
+        // 等待之后已经超过总时长则不再重试
+        if (!policy.canMeetDeadline(deadlineNanos, delayMillis)) {
+            if (log.isDebugEnabled()) {
+                log.debug("剩余时间不足，放弃第{}次重试", retryCount);
             }
+            return -1;
         }
-        return false;
-    }
-
-    /**
-     * 是否符合不需要终止的条件
-     */
-    private static <T> boolean isInCondition(T result, List<Predicate> abortConditions) {
-        if (CollectionUtils.isEmpty(abortConditions)) {
-            return true;
+        // 重试预算不足则不再重试
+        if (!policy.tryAcquireRetry()) {
+            if (log.isDebugEnabled()) {
+                log.debug("重试预算不足，放弃第{}次重试", retryCount);
+            }
+            return -1;
         }
 
-        for (Predicate predicate : abortConditions) {
-            if (predicate.test(result)) {
-                return true;
+        policy.retryScheduled(retryCount, delayMillis);
+
+        // 延时
+        if (delayMillis > 0) {
+            if (log.isDebugEnabled()) {
+                log.debug("延时{}毫秒", delayMillis);
             }
+            Thread.sleep(delayMillis);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("第{}次重试", retryCount);
         }
-        return false;
+        return delayMillis;
     }
 
 }
@@ -0,0 +1,101 @@
+package com.github.chujianyun.simpleretry4j;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 虚拟线程的支持
+ * <p>
+ * 运行在JDK 21及以上时通过反射创建每个任务一个虚拟线程的线程池，低版本JDK上退化为缓存的守护线程池，
+ * 因此本库仍然可以用JDK 8编译和运行。
+ * 可以作为{@link com.github.chujianyun.simpleretry4j.batchexec.BatchExePolicy}的线程池并行执行大量批次，
+ * 超时和对冲的尝试也在虚拟线程上执行，大量并发重试的任务在等待时不占用平台线程。
+ * <p>
+ * 设置系统属性 simpleretry4j.virtualThreads=false 可以关闭虚拟线程。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 23:10
+ */
+public final class VirtualThreads {
+
+    private static final String ENABLED_PROPERTY = "simpleretry4j.virtualThreads";
+
+    /**
+     * 是否通过系统属性关闭了虚拟线程
+     */
+    private static final boolean DISABLED = !Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"));
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor()，不支持或关闭时为null
+     */
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findFactory();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * 当前JDK是否支持并且开启了虚拟线程
+     */
+    public static boolean isSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * 创建每个任务一个虚拟线程的线程池
+     *
+     * @throws UnsupportedOperationException 当前JDK不支持或关闭了虚拟线程
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (DISABLED) {
+            throw new UnsupportedOperationException("虚拟线程已通过系统属性" + ENABLED_PROPERTY + "=false关闭");
+        }
+        if (NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR == null) {
+            throw new UnsupportedOperationException("当前JDK不支持虚拟线程");
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (IllegalAccessException e) {
+            throw new UnsupportedOperationException("当前JDK不支持虚拟线程", e);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new UnsupportedOperationException("当前JDK不支持虚拟线程", cause);
+        }
+    }
+
+    /**
+     * 创建每个任务一个线程的线程池：支持虚拟线程时使用虚拟线程，否则使用缓存的守护线程池
+     *
+     * @param namePrefix 不支持虚拟线程时平台线程名的前缀
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        if (isSupported()) {
+            return newVirtualThreadPerTaskExecutor();
+        }
+        AtomicInteger index = new AtomicInteger();
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static Method findFactory() {
+        if (DISABLED) {
+            return null;
+        }
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException | SecurityException e) {
+            return null;
+        }
+    }
+}
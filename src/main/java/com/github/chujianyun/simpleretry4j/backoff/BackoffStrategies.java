@@ -0,0 +1,187 @@
+package com.github.chujianyun.simpleretry4j.backoff;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 常用退避策略
+ * <p>
+ * 带随机抖动的策略都提供了指定随机种子的版本，随机数只由种子、重试次数和上一次的延时计算，不保存状态，
+ * 因此每一次重试过程的延时序列都是确定的，与线程和并发执行的其他重试无关，便于测试；
+ * 同时执行的重试得到相同的延时，起不到错开的作用，生产环境应使用不指定种子的版本。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 10:12
+ */
+public final class BackoffStrategies {
+
+    private BackoffStrategies() {
+    }
+
+    /**
+     * 固定延时
+     */
+    public static BackoffStrategy fixed(Duration delay) {
+        long delayMillis = toMillis(delay, "delay");
+        return (retryCount, lastDelayMillis) -> delayMillis;
+    }
+
+    /**
+     * 线性增长的延时：initialDelay + increment * (retryCount - 1)
+     */
+    public static BackoffStrategy linear(Duration initialDelay, Duration increment) {
+        long initialMillis = toMillis(initialDelay, "initialDelay");
+        long incrementMillis = toMillis(increment, "increment");
+        return (retryCount, lastDelayMillis) -> saturatedAdd(initialMillis, saturatedMultiply(incrementMillis, retryCount - 1));
+    }
+
+    /**
+     * 指数增长的延时：initialDelay * multiplier ^ (retryCount - 1)
+     */
+    public static BackoffStrategy exponential(Duration initialDelay, double multiplier) {
+        long initialMillis = toMillis(initialDelay, "initialDelay");
+        if (multiplier < 1 || Double.isNaN(multiplier) || Double.isInfinite(multiplier)) {
+            throw new IllegalArgumentException("multiplier must not be less than 1");
+        }
+        return (retryCount, lastDelayMillis) -> {
+            double delay = initialMillis * Math.pow(multiplier, retryCount - 1);
+            return delay >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) delay;
+        };
+    }
+
+    /**
+     * 完全抖动：在 [0, base] 之间随机
+     */
+    public static BackoffStrategy fullJitter(BackoffStrategy base) {
+        return fullJitter(base, BackoffStrategies::threadLocalRandom);
+    }
+
+    /**
+     * 指定随机种子的完全抖动
+     */
+    public static BackoffStrategy fullJitter(BackoffStrategy base, long seed) {
+        return fullJitter(base, seeded(seed));
+    }
+
+    /**
+     * 等量抖动：在 [base / 2, base] 之间随机
+     */
+    public static BackoffStrategy equalJitter(BackoffStrategy base) {
+        return equalJitter(base, BackoffStrategies::threadLocalRandom);
+    }
+
+    /**
+     * 指定随机种子的等量抖动
+     */
+    public static BackoffStrategy equalJitter(BackoffStrategy base, long seed) {
+        return equalJitter(base, seeded(seed));
+    }
+
+    /**
+     * 去相关抖动：在 [baseDelay, max(baseDelay, lastDelay) * 3] 之间随机，且不超过maxDelay
+     */
+    public static BackoffStrategy decorrelatedJitter(Duration baseDelay, Duration maxDelay) {
+        return decorrelatedJitter(baseDelay, maxDelay, BackoffStrategies::threadLocalRandom);
+    }
+
+    /**
+     * 指定随机种子的去相关抖动
+     */
+    public static BackoffStrategy decorrelatedJitter(Duration baseDelay, Duration maxDelay, long seed) {
+        return decorrelatedJitter(baseDelay, maxDelay, seeded(seed));
+    }
+
+    private static BackoffStrategy fullJitter(BackoffStrategy base, RandomSource random) {
+        checkBase(base);
+        return (retryCount, lastDelayMillis) -> randomBetween(random.nextDouble(retryCount, lastDelayMillis), 0,
+                base.delayMillis(retryCount, lastDelayMillis));
+    }
+
+    private static BackoffStrategy equalJitter(BackoffStrategy base, RandomSource random) {
+        checkBase(base);
+        return (retryCount, lastDelayMillis) -> {
+            long delay = base.delayMillis(retryCount, lastDelayMillis);
+            long half = delay / 2;
+            return half + randomBetween(random.nextDouble(retryCount, lastDelayMillis), 0, delay - half);
+        };
+    }
+
+    private static BackoffStrategy decorrelatedJitter(Duration baseDelay, Duration maxDelay, RandomSource random) {
+        long baseMillis = toMillis(baseDelay, "baseDelay");
+        long maxMillis = toMillis(maxDelay, "maxDelay");
+        if (maxMillis < baseMillis) {
+            throw new IllegalArgumentException("maxDelay must not be less than baseDelay");
+        }
+        return (retryCount, lastDelayMillis) -> {
+            // 第一次重试没有上一次的延时，按baseDelay计算，否则第一次重试都在同一时刻
+            long previous = Math.max(baseMillis, lastDelayMillis);
+            long upper = saturatedMultiply(previous, 3);
+            return Math.min(maxMillis, randomBetween(random.nextDouble(retryCount, lastDelayMillis), baseMillis, upper));
+        };
+    }
+
+    /**
+     * 按 [0, 1) 之间的随机数在 [min, max] 之间取值
+     */
+    private static long randomBetween(double random, long min, long max) {
+        if (max <= min) {
+            return min;
+        }
+        long value = min + (long) (random * ((double) (max - min) + 1));
+        return Math.min(value, max);
+    }
+
+    private static double threadLocalRandom(int retryCount, long lastDelayMillis) {
+        return ThreadLocalRandom.current().nextDouble();
+    }
+
+    /**
+     * 由种子、重试次数和上一次的延时经过SplitMix64的混合函数得到 [0, 1) 之间的随机数
+     */
+    private static RandomSource seeded(long seed) {
+        return (retryCount, lastDelayMillis) -> {
+            long z = seed + retryCount * 0x9E3779B97F4A7C15L + lastDelayMillis * 0xC2B2AE3D27D4EB4FL;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            z = z ^ (z >>> 31);
+            return (z >>> 11) * 0x1.0p-53;
+        };
+    }
+
+    /**
+     * 抖动使用的随机数
+     */
+    @FunctionalInterface
+    private interface RandomSource {
+
+        /**
+         * @return [0, 1) 之间的随机数
+         */
+        double nextDouble(int retryCount, long lastDelayMillis);
+    }
+
+    private static void checkBase(BackoffStrategy base) {
+        if (base == null) {
+            throw new IllegalArgumentException("base strategy must not be null");
+        }
+    }
+
+    private static long toMillis(Duration duration, String name) {
+        if (duration == null || duration.isNegative()) {
+            throw new IllegalArgumentException(name + " must not be null or negative");
+        }
+        return duration.toMillis();
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long result = a + b;
+        return result < 0 ? Long.MAX_VALUE : result;
+    }
+
+    private static long saturatedMultiply(long a, long b) {
+        if (a == 0 || b == 0) {
+            return 0;
+        }
+        return a > Long.MAX_VALUE / b ? Long.MAX_VALUE : a * b;
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.chujianyun.simpleretry4j.backoff;
+
+/**
+ * 退避策略，决定每次重试前的延时时间
+ * <p>
+ * 同一个重试策略会被多个线程共享，因此实现必须是无状态或线程安全的，
+ * 单次重试过程中需要的状态（上一次的延时）由调用方传入。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 10:05
+ * @see BackoffStrategies
+ */
+@FunctionalInterface
+public interface BackoffStrategy {
+
+    /**
+     * 计算第retryCount次重试前的延时
+     *
+     * @param retryCount      第几次重试，从1开始
+     * @param lastDelayMillis 上一次重试的延时（毫秒），第一次重试时为0
+     * @return 延时的毫秒数，不能为负数
+     */
+    long delayMillis(int retryCount, long lastDelayMillis);
+}
@@ -0,0 +1,172 @@
+package com.github.chujianyun.simpleretry4j.batchexec;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 自适应的批次大小
+ * <p>
+ * 按AIMD（加性增、乘性减）调整每批数量：批次成功且耗时不超过目标耗时时加上固定的增量，
+ * 耗时超过目标或者批次失败时乘以缩减系数，始终保持在最小和最大数量之间。
+ * <p>
+ * 当前批次大小保存在实例中，同一个实例在多次分批执行之间延续调整结果，
+ * 多个并发的分批执行共享同一个实例时共同调整。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 19:30
+ */
+public class AdaptiveBatchSizer {
+
+    private final int minBatchNum;
+
+    private final int maxBatchNum;
+
+    private final long targetLatencyNanos;
+
+    private final int increment;
+
+    private final double decreaseFactor;
+
+    private final AtomicInteger batchNum;
+
+    private AdaptiveBatchSizer(Builder builder) {
+        if (builder.minBatchNum > builder.maxBatchNum) {
+            throw new IllegalArgumentException("minBatchNum must not be greater than maxBatchNum");
+        }
+        if (builder.targetLatency == null) {
+            throw new IllegalArgumentException("targetLatency must be set");
+        }
+        this.minBatchNum = builder.minBatchNum;
+        this.maxBatchNum = builder.maxBatchNum;
+        this.targetLatencyNanos = builder.targetLatency.toNanos();
+        this.increment = builder.increment != null ? builder.increment : builder.minBatchNum;
+        this.decreaseFactor = builder.decreaseFactor;
+        int initialBatchNum = builder.initialBatchNum != null ? builder.initialBatchNum : builder.minBatchNum;
+        this.batchNum = new AtomicInteger(clamp(initialBatchNum));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 当前的每批数量
+     */
+    public int getBatchNum() {
+        return batchNum.get();
+    }
+
+    /**
+     * 根据一个批次的执行结果调整每批数量
+     *
+     * @param size         批次的元素个数
+     * @param elapsedNanos 批次的耗时
+     * @param failed       批次是否失败
+     */
+    public void onBatchComplete(int size, long elapsedNanos, boolean failed) {
+        while (true) {
+            int current = batchNum.get();
+            int next;
+            if (failed || elapsedNanos > targetLatencyNanos) {
+                next = clamp((int) (current * decreaseFactor));
+            } else if (size >= current) {
+                next = clamp((int) Math.min((long) current + increment, Integer.MAX_VALUE));
+            } else {
+                // 不满一批（如最后一个批次）的耗时不能说明当前数量还能增加
+                return;
+            }
+            if (next == current || batchNum.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    private int clamp(int value) {
+        return Math.max(minBatchNum, Math.min(maxBatchNum, value));
+    }
+
+    public static class Builder {
+
+        private int minBatchNum = 1;
+
+        private int maxBatchNum = 10000;
+
+        private Integer initialBatchNum;
+
+        private Duration targetLatency;
+
+        private Integer increment;
+
+        private double decreaseFactor = 0.5;
+
+        /**
+         * 最小每批数量，默认1
+         */
+        public Builder minBatchNum(int minBatchNum) {
+            if (minBatchNum <= 0) {
+                throw new IllegalArgumentException("minBatchNum must be positive");
+            }
+            this.minBatchNum = minBatchNum;
+            return this;
+        }
+
+        /**
+         * 最大每批数量，默认10000
+         */
+        public Builder maxBatchNum(int maxBatchNum) {
+            if (maxBatchNum <= 0) {
+                throw new IllegalArgumentException("maxBatchNum must be positive");
+            }
+            this.maxBatchNum = maxBatchNum;
+            return this;
+        }
+
+        /**
+         * 初始每批数量，默认为最小每批数量
+         */
+        public Builder initialBatchNum(int initialBatchNum) {
+            if (initialBatchNum <= 0) {
+                throw new IllegalArgumentException("initialBatchNum must be positive");
+            }
+            this.initialBatchNum = initialBatchNum;
+            return this;
+        }
+
+        /**
+         * 每个批次的目标耗时，必须设置
+         */
+        public Builder targetLatency(Duration targetLatency) {
+            if (targetLatency == null || targetLatency.isNegative() || targetLatency.isZero()) {
+                throw new IllegalArgumentException("targetLatency must be positive");
+            }
+            this.targetLatency = targetLatency;
+            return this;
+        }
+
+        /**
+         * 每次增加的数量，默认为最小每批数量
+         */
+        public Builder increment(int increment) {
+            if (increment <= 0) {
+                throw new IllegalArgumentException("increment must be positive");
+            }
+            this.increment = increment;
+            return this;
+        }
+
+        /**
+         * 超过目标耗时或失败时的缩减系数，默认0.5
+         */
+        public Builder decreaseFactor(double decreaseFactor) {
+            if (decreaseFactor <= 0 || decreaseFactor >= 1) {
+                throw new IllegalArgumentException("decreaseFactor must be between 0 and 1");
+            }
+            this.decreaseFactor = decreaseFactor;
+            return this;
+        }
+
+        public AdaptiveBatchSizer build() {
+            return new AdaptiveBatchSizer(this);
+        }
+    }
+}
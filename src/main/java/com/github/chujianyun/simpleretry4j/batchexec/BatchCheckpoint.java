@@ -0,0 +1,251 @@
+package com.github.chujianyun.simpleretry4j.batchexec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 分批执行的检查点
+ * <p>
+ * 每个批次结束后向本地文件追加一条记录（批次在输入中的起止位置以及是否失败），
+ * 从0开始连续完成的位置作为水位线，并行执行时乱序完成的批次单独记录。
+ * 重新执行同一个任务时跳过水位线之前的元素和已完成的批次，只执行剩余的部分。
+ * <p>
+ * 每追加syncEvery条记录才刷盘一次，进程崩溃时最近未刷盘的批次会被再次执行，即至少执行一次。
+ * 打开时忽略末尾不完整的记录，记录较多时压缩为水位线和乱序完成的批次。任务全部完成后可以删除检查点文件。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-19 02:00
+ */
+public final class BatchCheckpoint implements Closeable {
+
+    private static final int DEFAULT_SYNC_EVERY = 64;
+
+    private static final byte COMPLETED = 1;
+
+    private static final byte FAILED = 2;
+
+    /**
+     * 每条记录：类型1字节，起始位置8字节，结束位置8字节
+     */
+    private static final int RECORD_SIZE = 17;
+
+    private final Path path;
+
+    private final int syncEvery;
+
+    /**
+     * 复用的写缓冲区，由this保护
+     */
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+
+    private FileChannel channel;
+
+    /**
+     * 从0开始连续完成的位置
+     */
+    private long watermark;
+
+    /**
+     * 水位线之后已完成的批次，起始位置到结束位置
+     */
+    private final TreeMap<Long, Long> completed = new TreeMap<>();
+
+    /**
+     * 执行失败（失败策略忽略或二分后仍失败）的批次
+     */
+    private final List<long[]> failed = new ArrayList<>();
+
+    private int unsynced;
+
+    private BatchCheckpoint(Path path, int syncEvery) {
+        this.path = path;
+        this.syncEvery = syncEvery;
+    }
+
+    /**
+     * 打开检查点文件，不存在时创建
+     *
+     * @param path 检查点文件
+     */
+    public static BatchCheckpoint open(Path path) throws IOException {
+        return open(path, DEFAULT_SYNC_EVERY);
+    }
+
+    /**
+     * 打开检查点文件，不存在时创建
+     *
+     * @param path      检查点文件
+     * @param syncEvery 每追加多少条记录刷盘一次
+     */
+    public static BatchCheckpoint open(Path path, int syncEvery) throws IOException {
+        if (path == null) {
+            throw new NullPointerException("检查点文件不能为空");
+        }
+        if (syncEvery <= 0) {
+            throw new IllegalArgumentException("刷盘间隔的记录数必须大于0");
+        }
+        BatchCheckpoint checkpoint = new BatchCheckpoint(path, syncEvery);
+        checkpoint.load();
+        return checkpoint;
+    }
+
+    /**
+     * 从0开始连续完成的元素个数，重新执行时从这里开始
+     */
+    public synchronized long getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * 执行失败的批次在输入中的起止位置（包含起始，不包含结束）
+     */
+    public synchronized List<long[]> getFailedRanges() {
+        List<long[]> ranges = new ArrayList<>(failed.size());
+        for (long[] range : failed) {
+            ranges.add(range.clone());
+        }
+        return Collections.unmodifiableList(ranges);
+    }
+
+    /**
+     * [start, end)的元素是否都已经执行过
+     */
+    public synchronized boolean isCompleted(long start, long end) {
+        if (end <= watermark) {
+            return true;
+        }
+        Map.Entry<Long, Long> range = completed.floorEntry(start);
+        return range != null && range.getValue() >= end;
+    }
+
+    /**
+     * 记录一个批次执行结束
+     *
+     * @param start  批次第一个元素在输入中的位置
+     * @param end    批次最后一个元素之后的位置
+     * @param failed 批次是否执行失败
+     * @throws UncheckedIOException 写入检查点文件失败
+     */
+    synchronized void record(long start, long end, boolean failed) {
+        try {
+            append(failed ? FAILED : COMPLETED, start, end);
+            if (++unsynced >= syncEvery) {
+                channel.force(false);
+                unsynced = 0;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入检查点失败：" + path, e);
+        }
+        apply(failed ? FAILED : COMPLETED, start, end);
+    }
+
+    /**
+     * 刷盘后关闭
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    private void load() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        long validSize = size - size % RECORD_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 1024);
+        long position = 0;
+        long records = 0;
+        while (position < validSize) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), validSize - position));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            while (buffer.remaining() >= RECORD_SIZE) {
+                apply(buffer.get(), buffer.getLong(), buffer.getLong());
+                records++;
+            }
+            position += buffer.limit();
+        }
+
+        // 末尾不完整的记录是写入一半时崩溃留下的，丢弃
+        if (validSize < size) {
+            channel.truncate(validSize);
+        }
+        channel.position(validSize);
+
+        if (records > 2L * (completed.size() + failed.size() + 1)) {
+            compact();
+        }
+    }
+
+    /**
+     * 把记录压缩为水位线、乱序完成和失败的批次，写入临时文件后原子替换
+     */
+    private void compact() throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        channel.close();
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            channel = out;
+            if (watermark > 0) {
+                append(COMPLETED, 0, watermark);
+            }
+            for (Map.Entry<Long, Long> range : completed.entrySet()) {
+                append(COMPLETED, range.getKey(), range.getValue());
+            }
+            for (long[] range : failed) {
+                append(FAILED, range[0], range[1]);
+            }
+            out.force(false);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+    }
+
+    private void append(byte type, long start, long end) throws IOException {
+        record.clear();
+        record.put(type).putLong(start).putLong(end).flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+    }
+
+    private void apply(byte type, long start, long end) {
+        if (type == FAILED) {
+            failed.add(new long[]{start, end});
+        }
+        if (end <= watermark) {
+            return;
+        }
+        if (start > watermark) {
+            completed.merge(start, end, Math::max);
+            return;
+        }
+        // 推进水位线，并吸收与之相连的乱序完成的批次
+        watermark = end;
+        Map.Entry<Long, Long> next;
+        while ((next = completed.firstEntry()) != null && next.getKey() <= watermark) {
+            watermark = Math.max(watermark, next.getValue());
+            completed.pollFirstEntry();
+        }
+    }
+}
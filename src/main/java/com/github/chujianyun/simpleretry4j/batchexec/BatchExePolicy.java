@@ -1,10 +1,12 @@
 package com.github.chujianyun.simpleretry4j.batchexec;
 
 import com.github.chujianyun.simpleretry4j.RetryPolicy;
+import com.github.chujianyun.simpleretry4j.metrics.BatchListener;
 import lombok.Builder;
 import lombok.Data;
 
 import java.time.Duration;
+import java.util.concurrent.Executor;
 
 /**
  * 批量执行策略
@@ -13,11 +15,11 @@ import java.time.Duration;
  * @date: 2019-04-10 15:03
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class BatchExePolicy {
 
     /**
-     * 每个批次执行的数量
+     * 每个批次执行的数量，设置了 {@link #adaptiveBatchSizer} 时可以不设置
      */
     private Integer eachBatchNum;
 
@@ -27,7 +29,22 @@ public class BatchExePolicy {
     private Duration intervalDuration;
 
     /**
-     * 重试策略 仅 {@link FailPolicy#RETRY}时生效
+     * 批次未满时最多等待的时间，超过后不足一批也发出，仅用于 {@link BatchPublisher} 和 {@link MicroBatcher}
+     */
+    private Duration lingerDuration;
+
+    /**
+     * 每秒最多执行的元素个数，按批次的元素个数控制批次的开始时间，不能与 {@link #intervalDuration} 同时设置
+     */
+    private Integer itemsPerSecond;
+
+    /**
+     * 自适应的批次大小，设置后按批次的耗时调整每批数量，{@link #eachBatchNum} 不再生效
+     */
+    private AdaptiveBatchSizer adaptiveBatchSizer;
+
+    /**
+     * 重试策略 仅 {@link FailPolicy#RETRY}时生效，{@link FailPolicy#BISECT}时用于重试单个失败的元素
      */
     private RetryPolicy retryPolicy;
 
@@ -37,4 +54,49 @@ public class BatchExePolicy {
      */
     private FailPolicy failPolicy;
 
+    /**
+     * 死信处理，接收 {@link FailPolicy#BISECT}时二分后仍然失败的元素和 {@link FailPolicy#IGNORE}时失败批次的元素
+     */
+    private DeadLetterSink<?> deadLetterSink;
+
+    /**
+     * 并行执行批次的线程池（可以是ForkJoinPool或{@link com.github.chujianyun.simpleretry4j.VirtualThreads}创建的虚拟线程的线程池），
+     * 不设置则在调用线程上顺序执行
+     */
+    private Executor executor;
+
+    /**
+     * 并行执行时最多同时执行的批次数量，不设置则为CPU核数，仅设置了 {@link #executor} 时生效
+     */
+    private Integer maxInFlight;
+
+    /**
+     * 并行执行时批次的完成顺序，不设置则为 {@link CompletionOrder#UNORDERED}，仅设置了 {@link #executor} 时生效
+     */
+    private CompletionOrder completionOrder;
+
+    /**
+     * 是否复用批次的缓冲区，消费方法不会在批次执行结束后继续持有批次列表时可以开启，
+     * 仅对需要复制元素的数据源（Iterator、Stream、非随机访问的列表）顺序执行时生效
+     */
+    private Boolean reuseBatchBuffer;
+
+    /**
+     * 检查点，设置后记录每个批次的执行进度，重新执行时跳过已完成的批次，只用于一个任务
+     */
+    private BatchCheckpoint checkpoint;
+
+    /**
+     * 批次执行的监听器（可用于统计批次数量、耗时等指标）
+     */
+    private BatchListener listener;
+
+    /**
+     * 按元素类型取出死信处理，由执行方保证元素类型与设置的死信处理一致
+     */
+    @SuppressWarnings("unchecked")
+    <T> DeadLetterSink<T> typedDeadLetterSink() {
+        return (DeadLetterSink<T>) deadLetterSink;
+    }
+
 }
@@ -0,0 +1,34 @@
+package com.github.chujianyun.simpleretry4j.batchexec;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分批执行过程中的计数，并行执行时由多个线程同时累加
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 20:25
+ */
+class BatchExecCounter {
+
+    private final LongAdder batches = new LongAdder();
+
+    private final LongAdder succeeded = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    void batch() {
+        batches.increment();
+    }
+
+    void succeeded(int count) {
+        succeeded.add(count);
+    }
+
+    void failed(int count) {
+        failed.add(count);
+    }
+
+    BatchExecResult toResult() {
+        return new BatchExecResult(batches.sum(), succeeded.sum(), failed.sum());
+    }
+}
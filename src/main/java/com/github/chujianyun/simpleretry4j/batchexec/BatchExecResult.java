@@ -0,0 +1,44 @@
+package com.github.chujianyun.simpleretry4j.batchexec;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 分批执行的结果
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 20:25
+ */
+@Getter
+@ToString
+public class BatchExecResult {
+
+    /**
+     * 执行的批次数量（不含二分出的子批次）
+     */
+    private final long batchCount;
+
+    /**
+     * 执行成功的元素个数
+     */
+    private final long succeededCount;
+
+    /**
+     * 执行失败的元素个数（忽略策略下失败批次的所有元素、二分后仍然失败的元素）
+     */
+    private final long failedCount;
+
+    BatchExecResult(long batchCount, long succeededCount, long failedCount) {
+        this.batchCount = batchCount;
+        this.succeededCount = succeededCount;
+        this.failedCount = failedCount;
+    }
+
+    public long getTotalCount() {
+        return succeededCount + failedCount;
+    }
+
+    public boolean hasFailures() {
+        return failedCount > 0;
+    }
+}
@@ -1,11 +1,22 @@
 package com.github.chujianyun.simpleretry4j.batchexec;
 
+import com.github.chujianyun.simpleretry4j.RetryPolicy;
 import com.github.chujianyun.simpleretry4j.SimpleRetryUtil;
+import com.github.chujianyun.simpleretry4j.metrics.BatchListener;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
 
 /**
  * 分批执行工具类
@@ -17,60 +28,417 @@ public class BatchExecUtil {
 
     /**
      * 批量消费/执行某方法,支持指定每个批次的数量和延时
+     * <p>
+     * 策略中设置了线程池时并行执行各批次，否则在调用线程上顺序执行
      *
      * @param consumer       消费方法
      * @param data           数据
      * @param batchExePolicy 批量执行的策略
      */
     public static <T> void batchExec(Consumer<List<T>> consumer, List<T> data, BatchExePolicy batchExePolicy) throws Exception {
+        batchExecWithResult(consumer, data, batchExePolicy);
+    }
+
+    /**
+     * 流式批量消费，每次从迭代器中拉取一个批次的数据，不需要把全部数据加载到内存中
+     * <p>
+     * 顺序执行时内存中只有一个批次，并行执行时最多有maxInFlight个批次
+     *
+     * @param consumer       消费方法
+     * @param data           数据的迭代器
+     * @param batchExePolicy 批量执行的策略
+     */
+    public static <T> void batchExec(Consumer<List<T>> consumer, Iterator<T> data, BatchExePolicy batchExePolicy) throws Exception {
+        batchExecWithResult(consumer, data, batchExePolicy);
+    }
+
+    /**
+     * 流式批量消费，数据流由调用方负责关闭
+     *
+     * @param consumer       消费方法
+     * @param data           数据流
+     * @param batchExePolicy 批量执行的策略
+     */
+    public static <T> void batchExec(Consumer<List<T>> consumer, Stream<T> data, BatchExePolicy batchExePolicy) throws Exception {
+        batchExecWithResult(consumer, data, batchExePolicy);
+    }
+
+    /**
+     * 流式批量消费
+     *
+     * @param consumer       消费方法
+     * @param data           数据的Spliterator
+     * @param batchExePolicy 批量执行的策略
+     */
+    public static <T> void batchExec(Consumer<List<T>> consumer, Spliterator<T> data, BatchExePolicy batchExePolicy) throws Exception {
+        batchExecWithResult(consumer, data, batchExePolicy);
+    }
+
+    /**
+     * 批量消费/执行某方法，返回执行的批次和元素个数
+     *
+     * @param consumer       消费方法
+     * @param data           数据
+     * @param batchExePolicy 批量执行的策略
+     * @return 执行的结果
+     */
+    public static <T> BatchExecResult batchExecWithResult(Consumer<List<T>> consumer, List<T> data, BatchExePolicy batchExePolicy) throws Exception {
         checkParams(consumer, data, batchExePolicy);
 
-        Integer eachBatchNum = batchExePolicy.getEachBatchNum();
+        return batchExec(batchIndex -> consumer, BatchIterator.of(data, initialBatchNum(batchExePolicy), isReuseBatchBuffer(batchExePolicy)), batchExePolicy);
+    }
+
+    /**
+     * 流式批量消费，返回执行的批次和元素个数
+     *
+     * @param consumer       消费方法
+     * @param data           数据的迭代器
+     * @param batchExePolicy 批量执行的策略
+     * @return 执行的结果
+     */
+    public static <T> BatchExecResult batchExecWithResult(Consumer<List<T>> consumer, Iterator<T> data, BatchExePolicy batchExePolicy) throws Exception {
+        checkParams(consumer, data, batchExePolicy);
+
+        return batchExec(batchIndex -> consumer, BatchIterator.of(data, initialBatchNum(batchExePolicy), isReuseBatchBuffer(batchExePolicy)), batchExePolicy);
+    }
+
+    /**
+     * 流式批量消费，返回执行的批次和元素个数，数据流由调用方负责关闭
+     *
+     * @param consumer       消费方法
+     * @param data           数据流
+     * @param batchExePolicy 批量执行的策略
+     * @return 执行的结果
+     */
+    public static <T> BatchExecResult batchExecWithResult(Consumer<List<T>> consumer, Stream<T> data, BatchExePolicy batchExePolicy) throws Exception {
+        if (data == null) {
+            throw new NullPointerException("消费方法或数据不能为空");
+        }
+        return batchExecWithResult(consumer, data.iterator(), batchExePolicy);
+    }
+
+    /**
+     * 流式批量消费，返回执行的批次和元素个数
+     *
+     * @param consumer       消费方法
+     * @param data           数据的Spliterator
+     * @param batchExePolicy 批量执行的策略
+     * @return 执行的结果
+     */
+    public static <T> BatchExecResult batchExecWithResult(Consumer<List<T>> consumer, Spliterator<T> data, BatchExePolicy batchExePolicy) throws Exception {
+        if (data == null) {
+            throw new NullPointerException("消费方法或数据不能为空");
+        }
+        return batchExecWithResult(consumer, Spliterators.iterator(data), batchExePolicy);
+    }
+
+    /**
+     * 批量执行并合并每个批次的结果，合并的结果与输入的顺序一致
+     * <p>
+     * 每个批次的结果单独保存，全部批次结束后在调用线程上按批次顺序交给collector合并，
+     * 因此并行执行时collector也不需要是线程安全的。失败而被忽略的批次没有结果。
+     *
+     * @param function       批次的执行方法，返回该批次的结果
+     * @param data           数据
+     * @param batchExePolicy 批量执行的策略
+     * @param collector      合并各批次结果的方法
+     * @return 合并后的结果
+     */
+    public static <T, R, A, C> C batchMap(Function<List<T>, R> function, List<T> data, BatchExePolicy batchExePolicy,
+                                          Collector<? super R, A, C> collector) throws Exception {
+        checkParams(function, data, batchExePolicy);
+
+        return batchMap(function, BatchIterator.of(data, initialBatchNum(batchExePolicy), isReuseBatchBuffer(batchExePolicy)), batchExePolicy, collector);
+    }
+
+    /**
+     * 流式批量执行并合并每个批次的结果，合并的结果与输入的顺序一致
+     *
+     * @param function       批次的执行方法，返回该批次的结果
+     * @param data           数据的迭代器
+     * @param batchExePolicy 批量执行的策略
+     * @param collector      合并各批次结果的方法
+     * @return 合并后的结果
+     */
+    public static <T, R, A, C> C batchMap(Function<List<T>, R> function, Iterator<T> data, BatchExePolicy batchExePolicy,
+                                          Collector<? super R, A, C> collector) throws Exception {
+        checkParams(function, data, batchExePolicy);
+
+        return batchMap(function, BatchIterator.of(data, initialBatchNum(batchExePolicy), isReuseBatchBuffer(batchExePolicy)), batchExePolicy, collector);
+    }
+
+    /**
+     * 批量执行并按输入的顺序拼接每个批次返回的列表，适合批量查询
+     *
+     * @param function       批次的执行方法，返回该批次的结果列表
+     * @param data           数据
+     * @param batchExePolicy 批量执行的策略
+     * @return 所有批次的结果
+     */
+    public static <T, R> List<R> batchMap(Function<List<T>, List<R>> function, List<T> data, BatchExePolicy batchExePolicy) throws Exception {
+        Collector<List<R>, List<R>, List<R>> flatten = Collector.of(ArrayList::new, List::addAll, (left, right) -> {
+            left.addAll(right);
+            return left;
+        });
+        return batchMap(function, data, batchExePolicy, flatten);
+    }
+
+    /**
+     * 批量查询，合并每个批次返回的以输入为键的Map，迭代顺序与批次的顺序一致
+     *
+     * @param function       批次的查询方法，返回以该批次的元素为键的结果
+     * @param data           数据
+     * @param batchExePolicy 批量执行的策略
+     * @return 所有批次的结果
+     */
+    public static <T, R> Map<T, R> batchFetch(Function<List<T>, Map<T, R>> function, List<T> data, BatchExePolicy batchExePolicy) throws Exception {
+        Collector<Map<T, R>, Map<T, R>, Map<T, R>> merge = Collector.of(LinkedHashMap::new, Map::putAll, (left, right) -> {
+            left.putAll(right);
+            return left;
+        });
+        return batchMap(function, data, batchExePolicy, merge);
+    }
+
+    private static <T, R, A, C> C batchMap(Function<List<T>, R> function, BatchIterator<T> batches, BatchExePolicy batchExePolicy,
+                                           Collector<? super R, A, C> collector) throws Exception {
+        if (collector == null) {
+            throw new NullPointerException("合并结果的方法不能为空");
+        }
+        BatchResults<T, R> results = new BatchResults<>(function);
+        batchExec(results, batches, batchExePolicy);
+        return results.collect(collector);
+    }
+
+    /**
+     * @param consumers 按批次序号获取消费方法，在调用线程上按批次顺序调用
+     */
+    private static <T> BatchExecResult batchExec(IntFunction<Consumer<List<T>>> consumers, BatchIterator<T> batches,
+                                                 BatchExePolicy batchExePolicy) throws Exception {
+        BatchExecCounter counter = new BatchExecCounter();
+        // 从检查点继续执行时跳过水位线之前的元素
+        BatchCheckpoint checkpoint = batchExePolicy.getCheckpoint();
+        if (checkpoint != null) {
+            batches.skip(checkpoint.getWatermark());
+        }
+
+        // 并行执行
+        if (batchExePolicy.getExecutor() != null) {
+            new ParallelBatchExecutor<>(consumers, batchExePolicy, counter).execute(batches);
+            return counter.toResult();
+        }
 
         Duration intervalDuration = batchExePolicy.getIntervalDuration();
+        AdaptiveBatchSizer adaptiveBatchSizer = batchExePolicy.getAdaptiveBatchSizer();
+        BatchPacer pacer = newPacer(batchExePolicy);
+        int batchIndex = 0;
+        while (batches.hasNext()) {
+            long startOffset = batches.position();
+            List<T> batchData = nextBatch(batches, adaptiveBatchSizer);
+            // 跳过并行执行时乱序完成的批次
+            if (checkpoint != null && checkpoint.isCompleted(startOffset, startOffset + batchData.size())) {
+                continue;
+            }
+            if (pacer != null) {
+                pacer.acquire(batchData.size());
+            }
+
+            // 每个批次执行
+            execBatch(consumers.apply(batchIndex), batchIndex, startOffset, batchData, batchExePolicy, counter);
+            batchIndex++;
 
+            // 设置每个批次执行的间隔
+            if (pacer == null && batches.hasNext()) {
+                sleepInterval(intervalDuration);
+            }
+        }
+        return counter.toResult();
+    }
+
+    /**
+     * 按失败策略执行一个批次，设置了监听器时通知批次的开始和结束，设置了检查点时记录批次的进度
+     *
+     * @param startOffset 批次第一个元素在输入中的位置
+     */
+    static <T> void execBatch(Consumer<List<T>> consumer, int batchIndex, long startOffset, List<T> batchData,
+                              BatchExePolicy batchExePolicy, BatchExecCounter counter) throws Exception {
+        counter.batch();
+        BatchListener listener = batchExePolicy.getListener();
+        AdaptiveBatchSizer adaptiveBatchSizer = batchExePolicy.getAdaptiveBatchSizer();
+        BatchCheckpoint checkpoint = batchExePolicy.getCheckpoint();
+        if (listener == null && adaptiveBatchSizer == null) {
+            int size = batchData.size();
+            Exception failure = execBatch(consumer, batchData, batchExePolicy, counter);
+            // 抛出异常终止的批次不记录，重新执行时再次执行
+            if (checkpoint != null) {
+                checkpoint.record(startOffset, startOffset + size, failure != null);
+            }
+            return;
+        }
+
+        int size = batchData.size();
+        if (listener != null) {
+            listener.onBatchStart(batchIndex, size);
+        }
+        long startNanos = System.nanoTime();
+        Exception failure = null;
+        try {
+            failure = execBatch(consumer, batchData, batchExePolicy, counter);
+            if (checkpoint != null) {
+                checkpoint.record(startOffset, startOffset + size, failure != null);
+            }
+        } catch (Exception e) {
+            failure = e;
+            throw e;
+        } finally {
+            long elapsedNanos = System.nanoTime() - startNanos;
+            if (adaptiveBatchSizer != null) {
+                adaptiveBatchSizer.onBatchComplete(size, elapsedNanos, failure != null);
+            }
+            if (listener != null) {
+                listener.onBatchEnd(batchIndex, size, elapsedNanos, failure);
+            }
+        }
+    }
+
+    /**
+     * 按失败策略执行一个批次
+     *
+     * @return 忽略策略下被忽略的异常或二分后失败元素的异常，没有异常时返回null
+     */
+    private static <T> Exception execBatch(Consumer<List<T>> consumer, List<T> batchData, BatchExePolicy batchExePolicy,
+                                           BatchExecCounter counter) throws Exception {
         FailPolicy failPolicy = batchExePolicy.getFailPolicy();
+        if (failPolicy.equals(FailPolicy.IGNORE)) {
+            try {
+                consumer.accept(batchData);
+            } catch (Exception e) {
+                // ignore策略忽略当前这轮的错误，设置了死信处理时交给死信处理
+                deadLetter(batchData, e, batchExePolicy, counter);
+                return e;
+            }
+        } else if (failPolicy.equals(FailPolicy.ABORT_AND_THROW)) {
+            try {
+                consumer.accept(batchData);
+            } catch (Exception e) {
+                // 抛异常，终止
+                throw e;
+            }
+        } else if (failPolicy.equals(FailPolicy.RETRY)) {
+            SimpleRetryUtil.executeWithRetry(consumer, batchData, batchExePolicy.getRetryPolicy());
+        } else if (failPolicy.equals(FailPolicy.BISECT)) {
+            return bisect(consumer, batchData, batchExePolicy, counter);
+        }
+        counter.succeeded(batchData.size());
+        return null;
+    }
 
-        int currentIndex = 0;
-        while (currentIndex < data.size() - 1) {
-            // 获取当前批次的数据
-            List<T> batchData = data.stream().skip(currentIndex).limit(eachBatchNum).collect(Collectors.toList());
-            // 每个批次执行
-            if (failPolicy.equals(FailPolicy.IGNORE)) {
-                try {
-                    consumer.accept(batchData);
-                } catch (Exception e) {
-                    // ignore策略忽略当前这轮的错误
-                }
-            } else if (failPolicy.equals(FailPolicy.ABORT_AND_THROW)) {
-                try {
-                    consumer.accept(batchData);
-                } catch (Exception e) {
-                    // 抛异常，终止
-                    throw e;
-                }
-            } else if (failPolicy.equals(FailPolicy.RETRY)) {
-                SimpleRetryUtil.executeWithRetry(consumer, batchData, batchExePolicy.getRetryPolicy());
+    /**
+     * 批次失败时拆成两半分别执行，直到找出单个失败的元素
+     * <p>
+     * 一个批次中有k个失败的元素时最多多执行约2k*log2(n)次，其余元素仍然按批次执行
+     *
+     * @return 最后一个失败元素的异常，全部成功时返回null
+     */
+    private static <T> Exception bisect(Consumer<List<T>> consumer, List<T> batchData, BatchExePolicy batchExePolicy,
+                                        BatchExecCounter counter) throws Exception {
+        int size = batchData.size();
+        if (size == 1) {
+            return execItem(consumer, batchData, batchExePolicy, counter);
+        }
+        try {
+            consumer.accept(batchData);
+            counter.succeeded(size);
+            return null;
+        } catch (Exception e) {
+            int middle = size >>> 1;
+            Exception left = bisect(consumer, batchData.subList(0, middle), batchExePolicy, counter);
+            Exception right = bisect(consumer, batchData.subList(middle, size), batchExePolicy, counter);
+            return right != null ? right : left;
+        }
+    }
+
+    /**
+     * 执行单个元素，设置了重试策略时先按重试策略重试，仍然失败则交给死信处理
+     */
+    private static <T> Exception execItem(Consumer<List<T>> consumer, List<T> item, BatchExePolicy batchExePolicy,
+                                          BatchExecCounter counter) throws Exception {
+        try {
+            RetryPolicy retryPolicy = batchExePolicy.getRetryPolicy();
+            if (retryPolicy != null) {
+                SimpleRetryUtil.executeWithRetry(consumer, item, retryPolicy);
+            } else {
+                consumer.accept(item);
             }
+            counter.succeeded(1);
+            return null;
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            deadLetter(item, e, batchExePolicy, counter);
+            return e;
+        }
+    }
 
-            // 设置每个批次执行的间隔
-            if (intervalDuration != null) {
-                Thread.sleep(intervalDuration.toMinutes());
+    /**
+     * 记录失败的元素，设置了死信处理时逐个交给死信处理
+     */
+    private static <T> void deadLetter(List<T> items, Exception cause, BatchExePolicy batchExePolicy, BatchExecCounter counter) {
+        counter.failed(items.size());
+        DeadLetterSink<T> deadLetterSink = batchExePolicy.typedDeadLetterSink();
+        if (deadLetterSink != null) {
+            for (T item : items) {
+                deadLetterSink.accept(item, cause);
             }
-            // 设置下一个批次的其实索引
-            currentIndex += eachBatchNum;
         }
+    }
 
+    /**
+     * 取下一个批次，自适应批次大小时先按当前的每批数量调整
+     */
+    static <T> List<T> nextBatch(BatchIterator<T> batches, AdaptiveBatchSizer adaptiveBatchSizer) {
+        if (adaptiveBatchSizer != null) {
+            batches.resize(adaptiveBatchSizer.getBatchNum());
+        }
+        return batches.next();
     }
 
-    private static <T> void checkParams(Consumer<List<T>> consumer, List<T> data, BatchExePolicy batchExePolicy) {
+    /**
+     * 设置了每秒元素个数时创建限速器，否则返回null
+     */
+    static BatchPacer newPacer(BatchExePolicy batchExePolicy) {
+        Integer itemsPerSecond = batchExePolicy.getItemsPerSecond();
+        return itemsPerSecond == null ? null : new BatchPacer(itemsPerSecond);
+    }
+
+    /**
+     * 批次之间的间隔
+     */
+    static void sleepInterval(Duration intervalDuration) throws InterruptedException {
+        if (intervalDuration != null && !intervalDuration.isZero()) {
+            Thread.sleep(intervalDuration.toMillis());
+        }
+    }
+
+    private static int initialBatchNum(BatchExePolicy batchExePolicy) {
+        AdaptiveBatchSizer adaptiveBatchSizer = batchExePolicy.getAdaptiveBatchSizer();
+        return adaptiveBatchSizer != null ? adaptiveBatchSizer.getBatchNum() : batchExePolicy.getEachBatchNum();
+    }
+
+    /**
+     * 并行执行时同时存在多个批次，不能复用缓冲区
+     */
+    private static boolean isReuseBatchBuffer(BatchExePolicy batchExePolicy) {
+        return Boolean.TRUE.equals(batchExePolicy.getReuseBatchBuffer()) && batchExePolicy.getExecutor() == null;
+    }
+
+    private static void checkParams(Object consumer, Object data, BatchExePolicy batchExePolicy) {
 
         if (consumer == null || data == null) {
             throw new NullPointerException("消费方法或数据不能为空");
         }
 
         Integer eachBatchNum = batchExePolicy.getEachBatchNum();
-        if (eachBatchNum <= 0) {
+        if (batchExePolicy.getAdaptiveBatchSizer() == null && (eachBatchNum == null || eachBatchNum <= 0)) {
             throw new IllegalArgumentException("每个批次的数量不能为负数");
         }
 
@@ -78,5 +446,20 @@ public class BatchExecUtil {
         if (intervalDuration != null && intervalDuration.isNegative()) {
             throw new IllegalArgumentException("延时不能为负数");
         }
+
+        Integer itemsPerSecond = batchExePolicy.getItemsPerSecond();
+        if (itemsPerSecond != null) {
+            if (itemsPerSecond <= 0) {
+                throw new IllegalArgumentException("每秒元素个数必须大于0");
+            }
+            if (intervalDuration != null && !intervalDuration.isZero()) {
+                throw new IllegalArgumentException("每秒元素个数和间隔时间不能同时设置");
+            }
+        }
+
+        Integer maxInFlight = batchExePolicy.getMaxInFlight();
+        if (maxInFlight != null && maxInFlight <= 0) {
+            throw new IllegalArgumentException("最大并行批次数必须大于0");
+        }
     }
 }
@@ -0,0 +1,173 @@
+package com.github.chujianyun.simpleretry4j.batchexec;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * 按每批数量切分数据的迭代器
+ * <p>
+ * 支持随机访问的列表直接返回subList视图，不复制元素；
+ * 其他列表（如LinkedList）和迭代器只遍历一次，每个批次复制一次元素。
+ * 整个切分过程的耗时与数据量成线性关系。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 12:05
+ */
+abstract class BatchIterator<T> implements Iterator<List<T>> {
+
+    /**
+     * 复制批次时预分配的最大容量，避免每批数量设置得很大时一次性分配过多内存
+     */
+    private static final int MAX_INITIAL_CAPACITY = 8192;
+
+    /**
+     * 每批数量，自适应批次大小时在每次取下一个批次前调整
+     */
+    int eachBatchNum;
+
+    BatchIterator(int eachBatchNum) {
+        this.eachBatchNum = eachBatchNum;
+    }
+
+    /**
+     * 调整之后批次的数量
+     */
+    void resize(int eachBatchNum) {
+        this.eachBatchNum = eachBatchNum;
+    }
+
+    /**
+     * 已经取出的元素个数，即下一个批次的第一个元素在输入中的位置
+     */
+    abstract long position();
+
+    /**
+     * 跳过之后的count个元素，用于从检查点继续执行
+     */
+    abstract void skip(long count);
+
+    static <T> BatchIterator<T> of(List<T> data, int eachBatchNum, boolean reuseBuffer) {
+        if (data instanceof RandomAccess) {
+            return new SubListIterator<>(data, eachBatchNum);
+        }
+        return of(data.iterator(), eachBatchNum, reuseBuffer);
+    }
+
+    /**
+     * 从迭代器中每次拉取一个批次的元素，内存中只保留当前批次
+     *
+     * @param reuseBuffer 是否每个批次复用同一个列表
+     */
+    static <T> BatchIterator<T> of(Iterator<T> iterator, int eachBatchNum, boolean reuseBuffer) {
+        return new CopyingIterator<>(iterator, eachBatchNum, reuseBuffer);
+    }
+
+    /**
+     * 随机访问列表的切分，每个批次都是原列表的视图
+     */
+    private static class SubListIterator<T> extends BatchIterator<T> {
+
+        private final List<T> data;
+
+        private final int size;
+
+        private int currentIndex;
+
+        SubListIterator(List<T> data, int eachBatchNum) {
+            super(eachBatchNum);
+            this.data = data;
+            this.size = data.size();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return currentIndex < size;
+        }
+
+        @Override
+        long position() {
+            return currentIndex;
+        }
+
+        @Override
+        void skip(long count) {
+            currentIndex = (int) Math.min(currentIndex + count, size);
+        }
+
+        @Override
+        public List<T> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int toIndex = (int) Math.min((long) currentIndex + eachBatchNum, size);
+            List<T> batchData = data.subList(currentIndex, toIndex);
+            currentIndex = toIndex;
+            return batchData;
+        }
+    }
+
+    /**
+     * 顺序访问数据的切分，只遍历一次
+     */
+    private static class CopyingIterator<T> extends BatchIterator<T> {
+
+        private final Iterator<T> iterator;
+
+        /**
+         * 复用的缓冲区，不复用时为null
+         */
+        private final List<T> buffer;
+
+        private long position;
+
+        CopyingIterator(Iterator<T> iterator, int eachBatchNum, boolean reuseBuffer) {
+            super(eachBatchNum);
+            this.iterator = iterator;
+            this.buffer = reuseBuffer ? newBuffer(eachBatchNum) : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        long position() {
+            return position;
+        }
+
+        @Override
+        void skip(long count) {
+            for (long i = 0; i < count && iterator.hasNext(); i++) {
+                iterator.next();
+                position++;
+            }
+        }
+
+        @Override
+        public List<T> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            List<T> batchData;
+            if (buffer != null) {
+                buffer.clear();
+                batchData = buffer;
+            } else {
+                batchData = newBuffer(eachBatchNum);
+            }
+            while (batchData.size() < eachBatchNum && iterator.hasNext()) {
+                batchData.add(iterator.next());
+            }
+            position += batchData.size();
+            return batchData;
+        }
+    }
+
+    private static <T> List<T> newBuffer(int eachBatchNum) {
+        return new ArrayList<>(Math.min(eachBatchNum, MAX_INITIAL_CAPACITY));
+    }
+}
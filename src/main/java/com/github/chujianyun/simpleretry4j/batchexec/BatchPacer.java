@@ -0,0 +1,48 @@
+package com.github.chujianyun.simpleretry4j.batchexec;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按每秒元素个数控制批次的提交速率
+ * <p>
+ * 每个批次按元素个数占用一段时间，下一个批次等到这段时间结束后才开始，
+ * 批次执行本身的耗时计入这段时间，因此实际速率不会超过设定值，也不会因为执行慢而额外等待。
+ * 只在提交批次的调用线程上使用，不需要同步。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 19:45
+ */
+class BatchPacer {
+
+    private final double nanosPerItem;
+
+    /**
+     * 下一个批次最早的开始时间
+     */
+    private long nextFreeNanos;
+
+    private boolean started;
+
+    BatchPacer(int itemsPerSecond) {
+        this.nanosPerItem = (double) TimeUnit.SECONDS.toNanos(1) / itemsPerSecond;
+    }
+
+    /**
+     * 等待直到可以开始一个有size个元素的批次
+     */
+    void acquire(int size) throws InterruptedException {
+        long now = System.nanoTime();
+        if (!started) {
+            started = true;
+            nextFreeNanos = now;
+        }
+        long waitNanos = nextFreeNanos - now;
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } else {
+            // 空闲的时间不累积，避免之后突发超过速率
+            nextFreeNanos = now;
+        }
+        nextFreeNanos += (long) (size * nanosPerItem);
+    }
+}
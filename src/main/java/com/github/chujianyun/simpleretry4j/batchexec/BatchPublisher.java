@@ -0,0 +1,84 @@
+package com.github.chujianyun.simpleretry4j.batchexec;
+
+import com.github.chujianyun.simpleretry4j.RetryScheduler;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * 按批量执行策略分批的Reactive Streams发布者
+ * <p>
+ * 把上游的元素按每批数量分批，设置了lingerDuration时批次未满但等待超时也发出。
+ * 背压按需进行：下游请求n个批次时只向上游请求填满下一个批次所需的元素，内存中最多只有一个批次。
+ * 上游出错时丢弃未发出的元素并立即把错误传给下游，上游结束时先发出最后一个不足一批的批次。
+ * <p>
+ * 只使用策略中的每批数量（设置了自适应批次大小时取订阅时的每批数量）和lingerDuration，
+ * 批次的执行、失败策略和并行由下游负责。需要依赖reactive-streams，不依赖具体的响应式框架。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 23:55
+ */
+public final class BatchPublisher<T> implements Publisher<List<T>> {
+
+    private final Publisher<T> source;
+
+    private final BatchExePolicy batchExePolicy;
+
+    private final long lingerNanos;
+
+    private final ScheduledExecutorService scheduler;
+
+    private BatchPublisher(Publisher<T> source, BatchExePolicy batchExePolicy, long lingerNanos, ScheduledExecutorService scheduler) {
+        this.source = source;
+        this.batchExePolicy = batchExePolicy;
+        this.lingerNanos = lingerNanos;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * 按批量执行策略分批，等待超时由共享的定时器调度
+     *
+     * @param source         上游
+     * @param batchExePolicy 批量执行的策略
+     */
+    public static <T> BatchPublisher<T> of(Publisher<T> source, BatchExePolicy batchExePolicy) {
+        return of(source, batchExePolicy, RetryScheduler.shared());
+    }
+
+    /**
+     * 按批量执行策略分批，使用指定的定时器调度等待超时
+     *
+     * @param source         上游
+     * @param batchExePolicy 批量执行的策略
+     * @param scheduler      调度等待超时的定时器
+     */
+    public static <T> BatchPublisher<T> of(Publisher<T> source, BatchExePolicy batchExePolicy, ScheduledExecutorService scheduler) {
+        if (source == null || batchExePolicy == null || scheduler == null) {
+            throw new NullPointerException("上游、批量执行策略和定时器不能为空");
+        }
+
+        Integer eachBatchNum = batchExePolicy.getEachBatchNum();
+        if (batchExePolicy.getAdaptiveBatchSizer() == null && (eachBatchNum == null || eachBatchNum <= 0)) {
+            throw new IllegalArgumentException("每个批次的数量不能为负数");
+        }
+
+        Duration lingerDuration = batchExePolicy.getLingerDuration();
+        if (lingerDuration != null && lingerDuration.isNegative()) {
+            throw new IllegalArgumentException("延时不能为负数");
+        }
+        return new BatchPublisher<>(source, batchExePolicy, lingerDuration == null ? 0 : lingerDuration.toNanos(), scheduler);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super List<T>> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("订阅者不能为空");
+        }
+        AdaptiveBatchSizer adaptiveBatchSizer = batchExePolicy.getAdaptiveBatchSizer();
+        int batchNum = adaptiveBatchSizer != null ? adaptiveBatchSizer.getBatchNum() : batchExePolicy.getEachBatchNum();
+        source.subscribe(new BatchSubscription<>(subscriber, batchNum, lingerNanos, scheduler));
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.chujianyun.simpleretry4j.batchexec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collector;
+
+/**
+ * 分批执行的结果
+ * <p>
+ * 每个批次的结果放在各自的列表中，并行执行时各批次之间没有共享的可变状态，
+ * 全部批次结束后在调用线程上按批次顺序合并，因此合并的结果与输入的顺序一致。
+ * 二分执行时一个批次可能有多个结果（每个成功的子批次一个），失败而被忽略的批次没有结果。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-19 00:30
+ */
+final class BatchResults<T, R> implements IntFunction<Consumer<List<T>>> {
+
+    private final Function<List<T>, R> function;
+
+    /**
+     * 各批次的结果，按批次序号在调用线程上添加
+     */
+    private final List<List<R>> batches = new ArrayList<>();
+
+    BatchResults(Function<List<T>, R> function) {
+        this.function = function;
+    }
+
+    /**
+     * 创建第batchIndex个批次的消费方法，批次的结果只由执行该批次的线程写入
+     */
+    @Override
+    public Consumer<List<T>> apply(int batchIndex) {
+        List<R> results = new ArrayList<>(1);
+        batches.add(results);
+        return batchData -> {
+            R result = function.apply(batchData);
+            results.add(result);
+        };
+    }
+
+    /**
+     * 按批次顺序合并所有结果，只能在所有批次结束后调用
+     */
+    <A, C> C collect(Collector<? super R, A, C> collector) {
+        A container = collector.supplier().get();
+        BiConsumer<A, ? super R> accumulator = collector.accumulator();
+        for (List<R> results : batches) {
+            for (R result : results) {
+                accumulator.accept(container, result);
+            }
+        }
+        return collector.finisher().apply(container);
+    }
+}
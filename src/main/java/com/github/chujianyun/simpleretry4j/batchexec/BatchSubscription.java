@@ -0,0 +1,270 @@
+package com.github.chujianyun.simpleretry4j.batchexec;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一次订阅的分批过程
+ * <p>
+ * 当前批次由this保护，向下游发出批次由drain串行执行，不在持有锁时调用下游。
+ * 向上游请求的元素加上已缓存的元素不超过一个批次，因此缓冲区不会超过每批数量。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 23:55
+ */
+final class BatchSubscription<T> implements Subscriber<T>, Subscription {
+
+    private final Subscriber<? super List<T>> downstream;
+
+    private final int batchNum;
+
+    private final long lingerNanos;
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * 下游还未满足的批次数量
+     */
+    private final AtomicLong requested = new AtomicLong();
+
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private volatile Subscription upstream;
+
+    /**
+     * 当前批次，由this保护
+     */
+    private List<T> buffer;
+
+    /**
+     * 已向上游请求但还未收到的元素数量，由this保护
+     */
+    private long outstanding;
+
+    /**
+     * 当前批次已等待超时，由this保护
+     */
+    private boolean flushDue;
+
+    /**
+     * 当前批次的等待超时，由this保护
+     */
+    private Future<?> lingerTask;
+
+    private Throwable error;
+
+    private volatile boolean done;
+
+    private volatile boolean cancelled;
+
+    /**
+     * 已向下游发出结束信号，只在drain中访问
+     */
+    private boolean terminated;
+
+    BatchSubscription(Subscriber<? super List<T>> downstream, int batchNum, long lingerNanos, ScheduledExecutorService scheduler) {
+        this.downstream = downstream;
+        this.batchNum = batchNum;
+        this.lingerNanos = lingerNanos;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        if (subscription == null) {
+            throw new NullPointerException("上游的订阅不能为空");
+        }
+        if (upstream != null) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        downstream.onSubscribe(this);
+    }
+
+    @Override
+    public void onNext(T item) {
+        if (done || cancelled) {
+            return;
+        }
+        boolean full;
+        synchronized (this) {
+            if (buffer == null) {
+                buffer = new ArrayList<>(batchNum);
+                scheduleLinger(buffer);
+            }
+            buffer.add(item);
+            outstanding--;
+            full = buffer.size() >= batchNum;
+        }
+        if (full) {
+            drain();
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (done) {
+            return;
+        }
+        error = throwable;
+        done = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        if (done) {
+            return;
+        }
+        done = true;
+        drain();
+    }
+
+    @Override
+    public void request(long n) {
+        if (n <= 0) {
+            cancel();
+            downstream.onError(new IllegalArgumentException("请求的数量必须大于0"));
+            return;
+        }
+        while (true) {
+            long current = requested.get();
+            long next = current + n < 0 ? Long.MAX_VALUE : current + n;
+            if (current == Long.MAX_VALUE || requested.compareAndSet(current, next)) {
+                break;
+            }
+        }
+        drain();
+    }
+
+    @Override
+    public void cancel() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+        upstream.cancel();
+        drain();
+    }
+
+    private void scheduleLinger(List<T> batch) {
+        if (lingerNanos <= 0) {
+            return;
+        }
+        try {
+            lingerTask = scheduler.schedule(() -> onLinger(batch), lingerNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // 定时器已关闭时只按数量分批
+        }
+    }
+
+    private void onLinger(List<T> batch) {
+        synchronized (this) {
+            // 批次已经发出，超时属于上一个批次
+            if (buffer != batch) {
+                return;
+            }
+            flushDue = true;
+        }
+        drain();
+    }
+
+    private void cancelLinger() {
+        if (lingerTask != null) {
+            lingerTask.cancel(false);
+            lingerTask = null;
+        }
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        while (true) {
+            if (cancelled) {
+                synchronized (this) {
+                    buffer = null;
+                    cancelLinger();
+                }
+            } else if (!terminated) {
+                emit();
+            }
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 发出所有可以发出的批次，并按下游的需求向上游请求
+     */
+    private void emit() {
+        while (true) {
+            List<T> batch = null;
+            long toRequest = 0;
+            boolean terminate = false;
+            synchronized (this) {
+                boolean finished = done;
+                boolean hasItems = buffer != null && !buffer.isEmpty();
+                long r = requested.get();
+                if (finished && error != null) {
+                    buffer = null;
+                    cancelLinger();
+                    terminate = true;
+                } else if (r > 0 && hasItems && (buffer.size() >= batchNum || flushDue || finished)) {
+                    batch = buffer;
+                    buffer = null;
+                    flushDue = false;
+                    cancelLinger();
+                    r--;
+                } else if (finished && !hasItems) {
+                    terminate = true;
+                }
+
+                // 下游还有需求时只请求填满下一个批次所需的元素
+                if (!finished && r > 0) {
+                    long need = batchNum - (buffer != null ? buffer.size() : 0) - outstanding;
+                    if (need > 0) {
+                        outstanding += need;
+                        toRequest = need;
+                    }
+                }
+            }
+
+            if (toRequest > 0) {
+                upstream.request(toRequest);
+            }
+            if (terminate) {
+                terminated = true;
+                if (error != null) {
+                    downstream.onError(error);
+                } else {
+                    downstream.onComplete();
+                }
+                return;
+            }
+            if (batch == null) {
+                return;
+            }
+            if (requested.get() != Long.MAX_VALUE) {
+                requested.decrementAndGet();
+            }
+            downstream.onNext(batch);
+            if (cancelled) {
+                return;
+            }
+        }
+    }
+}
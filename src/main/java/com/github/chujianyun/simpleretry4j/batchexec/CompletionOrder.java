@@ -0,0 +1,20 @@
+package com.github.chujianyun.simpleretry4j.batchexec;
+
+/**
+ * 并行执行时批次的完成顺序
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 11:02
+ */
+public enum CompletionOrder {
+
+    /**
+     * 按批次顺序完成：最早提交的批次完成后才能提交新的批次，失败时优先抛出序号较小的批次的异常
+     */
+    ORDERED(),
+
+    /**
+     * 不保证顺序：任一批次完成即可提交新的批次，失败时抛出最先观察到的异常
+     */
+    UNORDERED()
+}
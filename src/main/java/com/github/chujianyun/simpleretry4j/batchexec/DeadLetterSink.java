@@ -0,0 +1,22 @@
+package com.github.chujianyun.simpleretry4j.batchexec;
+
+/**
+ * 死信处理
+ * <p>
+ * 接收执行失败的元素，例如写入失败表或消息队列以便人工处理或之后重放。
+ * 并行执行时会在多个线程上调用，实现需要是线程安全的。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 20:20
+ */
+@FunctionalInterface
+public interface DeadLetterSink<T> {
+
+    /**
+     * 处理一个执行失败的元素
+     *
+     * @param item  失败的元素
+     * @param cause 失败的原因
+     */
+    void accept(T item, Exception cause);
+}
@@ -6,7 +6,7 @@ package com.github.chujianyun.simpleretry4j.batchexec;
  * @author: 明明如月 liuwangyangedu@163.com
  * @date: 2019-04-10 15:22
  */
-enum FailPolicy {
+public enum FailPolicy {
 
     /**
      * 终止整个批量操作并抛异常
@@ -21,5 +21,10 @@ enum FailPolicy {
     /**
      * 执行重试策略
      */
-    RETRY()
+    RETRY(),
+
+    /**
+     * 二分失败的批次，找出失败的元素交给死信处理，其余元素仍按批次执行
+     */
+    BISECT()
 }
@@ -0,0 +1,372 @@
+package com.github.chujianyun.simpleretry4j.batchexec;
+
+import com.github.chujianyun.simpleretry4j.RetryScheduler;
+import com.github.chujianyun.simpleretry4j.VirtualThreads;
+
+import java.time.Duration;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 微批合并
+ * <p>
+ * 调用方逐个提交元素并得到各自的CompletableFuture，元素攒够每批数量或等待超过lingerDuration后
+ * 作为一个批次按批量执行的策略执行，每个元素的结果是批次结果中对应位置的值，失败的元素以异常结束。
+ * <p>
+ * 提交的元素放入无锁的多生产者单消费者队列，只有一个线程负责切分批次，批次在策略的线程池中执行，
+ * 不设置线程池时使用 {@link VirtualThreads#newThreadPerTaskExecutor(String)} 创建的线程池，关闭时一并关闭。
+ * 只使用策略中的每批数量（或自适应批次大小）、lingerDuration、失败策略、重试策略、死信处理、线程池和监听器，不使用检查点。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-19 01:10
+ */
+public final class MicroBatcher<T, R> implements AutoCloseable {
+
+    private final Consumer<List<Entry<T, R>>> consumer;
+
+    private final BatchExePolicy batchExePolicy;
+
+    private final Executor executor;
+
+    /**
+     * 由本类创建的线程池，关闭时一并关闭
+     */
+    private final ExecutorService ownedExecutor;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final long lingerNanos;
+
+    private final BatchExecCounter counter = new BatchExecCounter();
+
+    /**
+     * 队列的尾部，生产者通过getAndSet追加
+     */
+    private final AtomicReference<Entry<T, R>> tail;
+
+    /**
+     * 队列的头部（已取出的最后一个节点），只在drain中访问
+     */
+    private Entry<T, R> head;
+
+    /**
+     * 已提交但还未切分到批次中的元素个数
+     */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final AtomicInteger wip = new AtomicInteger();
+
+    /**
+     * 等待超时或主动刷新，不足一批也切分
+     */
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    /**
+     * 等待超时的定时任务，只在drain中访问
+     */
+    private Future<?> lingerTask;
+
+    /**
+     * 批次序号，只在drain中访问
+     */
+    private int batchIndex;
+
+    private volatile boolean closed;
+
+    private MicroBatcher(Function<List<T>, List<R>> function, BatchExePolicy batchExePolicy, ScheduledExecutorService scheduler) {
+        this.consumer = entries -> {
+            List<R> results = function.apply(new Items<>(entries));
+            if (results == null || results.size() != entries.size()) {
+                throw new IllegalStateException("批次的结果数量与元素数量不一致");
+            }
+            for (int i = 0; i < entries.size(); i++) {
+                entries.get(i).complete(results.get(i));
+            }
+        };
+
+        // 失败的元素以各自的异常结束，再交给原来的死信处理；不设置失败策略时批次失败只结束该批次的元素
+        DeadLetterSink<T> deadLetterSink = batchExePolicy.typedDeadLetterSink();
+        FailPolicy failPolicy = batchExePolicy.getFailPolicy();
+        this.batchExePolicy = batchExePolicy.toBuilder()
+                .failPolicy(failPolicy != null ? failPolicy : FailPolicy.ABORT_AND_THROW)
+                .checkpoint(null)
+                .deadLetterSink((DeadLetterSink<Entry<T, R>>) (entry, cause) -> {
+                    entry.completeExceptionally(cause);
+                    if (deadLetterSink != null) {
+                        deadLetterSink.accept(entry.item, cause);
+                    }
+                })
+                .build();
+
+        if (batchExePolicy.getExecutor() != null) {
+            this.executor = batchExePolicy.getExecutor();
+            this.ownedExecutor = null;
+        } else {
+            this.ownedExecutor = VirtualThreads.newThreadPerTaskExecutor("simple-retry4j-micro-batch-");
+            this.executor = ownedExecutor;
+        }
+        this.scheduler = scheduler;
+        Duration lingerDuration = batchExePolicy.getLingerDuration();
+        this.lingerNanos = lingerDuration == null ? 0 : lingerDuration.toNanos();
+
+        Entry<T, R> stub = new Entry<>(null);
+        this.head = stub;
+        this.tail = new AtomicReference<>(stub);
+    }
+
+    /**
+     * 创建微批合并，批次的执行方法返回与批次元素一一对应的结果
+     *
+     * @param function       批次的执行方法，返回的列表与批次的元素数量相同且顺序一致
+     * @param batchExePolicy 批量执行的策略
+     */
+    public static <T, R> MicroBatcher<T, R> of(Function<List<T>, List<R>> function, BatchExePolicy batchExePolicy) {
+        return of(function, batchExePolicy, RetryScheduler.shared());
+    }
+
+    /**
+     * 创建微批合并，使用指定的定时器调度等待超时
+     *
+     * @param function       批次的执行方法，返回的列表与批次的元素数量相同且顺序一致
+     * @param batchExePolicy 批量执行的策略
+     * @param scheduler      调度等待超时的定时器
+     */
+    public static <T, R> MicroBatcher<T, R> of(Function<List<T>, List<R>> function, BatchExePolicy batchExePolicy,
+                                               ScheduledExecutorService scheduler) {
+        if (function == null || batchExePolicy == null || scheduler == null) {
+            throw new NullPointerException("执行方法、批量执行策略和定时器不能为空");
+        }
+
+        Integer eachBatchNum = batchExePolicy.getEachBatchNum();
+        if (batchExePolicy.getAdaptiveBatchSizer() == null && (eachBatchNum == null || eachBatchNum <= 0)) {
+            throw new IllegalArgumentException("每个批次的数量不能为负数");
+        }
+
+        Duration lingerDuration = batchExePolicy.getLingerDuration();
+        if (lingerDuration != null && lingerDuration.isNegative()) {
+            throw new IllegalArgumentException("延时不能为负数");
+        }
+        return new MicroBatcher<>(function, batchExePolicy, scheduler);
+    }
+
+    /**
+     * 创建无返回值的微批合并，批次执行成功后每个元素以null结束
+     *
+     * @param consumer       消费方法
+     * @param batchExePolicy 批量执行的策略
+     */
+    public static <T> MicroBatcher<T, Void> ofConsumer(Consumer<List<T>> consumer, BatchExePolicy batchExePolicy) {
+        if (consumer == null) {
+            throw new NullPointerException("消费方法不能为空");
+        }
+        return of(batch -> {
+            consumer.accept(batch);
+            return Collections.nCopies(batch.size(), null);
+        }, batchExePolicy);
+    }
+
+    /**
+     * 提交一个元素
+     *
+     * @param item 元素
+     * @return 该元素的结果，所在批次执行失败时以异常结束
+     * @throws IllegalStateException 已关闭
+     */
+    public CompletableFuture<R> submit(T item) {
+        if (closed) {
+            throw new IllegalStateException("微批合并已关闭");
+        }
+        Entry<T, R> entry = new Entry<>(item);
+        Entry<T, R> previous = tail.getAndSet(entry);
+        previous.next = entry;
+
+        int count = pending.incrementAndGet();
+        // 与close并发时close的刷新可能已经结束，由提交方自己刷新，线程池已关闭时该元素以异常结束
+        if (closed) {
+            flush();
+            return entry;
+        }
+        // 第一个元素开始计时，攒够一批时切分
+        if (count == 1 || count >= batchNum()) {
+            drain();
+        }
+        return entry;
+    }
+
+    /**
+     * 立即切分已提交的元素，不足一批也执行
+     */
+    public void flush() {
+        flushRequested.set(true);
+        drain();
+    }
+
+    /**
+     * 已执行的批次和元素个数
+     */
+    public BatchExecResult getResult() {
+        return counter.toResult();
+    }
+
+    /**
+     * 执行已提交的元素后关闭，之后不能再提交，正在执行的批次继续执行
+     */
+    @Override
+    public void close() {
+        closed = true;
+        flush();
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    private int batchNum() {
+        AdaptiveBatchSizer adaptiveBatchSizer = batchExePolicy.getAdaptiveBatchSizer();
+        return adaptiveBatchSizer != null ? adaptiveBatchSizer.getBatchNum() : batchExePolicy.getEachBatchNum();
+    }
+
+    /**
+     * 切分批次，同一时刻只有一个线程执行
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        while (true) {
+            boolean flush = flushRequested.getAndSet(false);
+            if (flush && lingerTask != null) {
+                lingerTask.cancel(false);
+                lingerTask = null;
+            }
+
+            int batchNum = batchNum();
+            int count = pending.get();
+            boolean dispatched = false;
+            while (count >= batchNum || (flush && count > 0)) {
+                int size = Math.min(count, batchNum);
+                dispatch(take(size));
+                count = pending.addAndGet(-size);
+                dispatched = true;
+            }
+            // 攒够一批切分后，剩下的元素重新开始计时
+            if (dispatched && lingerTask != null) {
+                lingerTask.cancel(false);
+                lingerTask = null;
+            }
+            if (count > 0 && lingerTask == null) {
+                scheduleLinger();
+            }
+
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    private void scheduleLinger() {
+        if (lingerNanos <= 0 || closed) {
+            return;
+        }
+        try {
+            lingerTask = scheduler.schedule(this::flush, lingerNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // 定时器已关闭时只按数量切分
+        }
+    }
+
+    /**
+     * 从队列中取出size个元素，生产者追加到一半时短暂等待
+     */
+    private List<Entry<T, R>> take(int size) {
+        List<Entry<T, R>> batch = new ArrayList<>(size);
+        while (batch.size() < size) {
+            Entry<T, R> next = head.next;
+            if (next == null) {
+                Thread.yield();
+                continue;
+            }
+            // 取出的节点成为新的头部，断开旧头部以便回收
+            head.next = null;
+            head = next;
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    private void dispatch(List<Entry<T, R>> batch) {
+        int index = batchIndex++;
+        try {
+            executor.execute(() -> execute(index, batch));
+        } catch (RejectedExecutionException e) {
+            fail(batch, e);
+        }
+    }
+
+    private void execute(int index, List<Entry<T, R>> batch) {
+        try {
+            BatchExecUtil.execBatch(consumer, index, 0, batch, batchExePolicy, counter);
+        } catch (Throwable e) {
+            // Error也要结束批次中的元素，否则调用方会一直等待
+            fail(batch, e);
+        }
+    }
+
+    private static <T, R> void fail(List<Entry<T, R>> batch, Throwable cause) {
+        for (Entry<T, R> entry : batch) {
+            entry.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * 一个提交的元素，同时是队列的节点和返回给调用方的结果
+     */
+    private static final class Entry<T, R> extends CompletableFuture<R> {
+
+        private final T item;
+
+        private volatile Entry<T, R> next;
+
+        private Entry(T item) {
+            this.item = item;
+        }
+    }
+
+    /**
+     * 批次中元素的只读视图，二分执行时随子列表一起拆分
+     */
+    private static final class Items<T, R> extends AbstractList<T> implements RandomAccess {
+
+        private final List<Entry<T, R>> entries;
+
+        private Items(List<Entry<T, R>> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public T get(int index) {
+            return entries.get(index).item;
+        }
+
+        @Override
+        public int size() {
+            return entries.size();
+        }
+    }
+}
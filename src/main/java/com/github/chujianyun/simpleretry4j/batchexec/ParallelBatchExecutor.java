@@ -0,0 +1,251 @@
+package com.github.chujianyun.simpleretry4j.batchexec;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * 并行分批执行
+ * <p>
+ * 调用线程负责切分批次并提交到线程池，同时执行的批次数量不超过maxInFlight，
+ * 因此内存中最多只有maxInFlight个批次。任一批次的异常（忽略策略除外）会取消其余未完成的批次并抛出。
+ * <p>
+ * 等待使用{@link ReentrantLock}而不是synchronized，调用线程是虚拟线程时等待不会占住载体线程。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 11:10
+ */
+class ParallelBatchExecutor<T> {
+
+    /**
+     * 按批次序号获取消费方法，在调用线程上按批次顺序调用
+     */
+    private final IntFunction<Consumer<List<T>>> consumers;
+
+    private final BatchExePolicy batchExePolicy;
+
+    private final BatchExecCounter counter;
+
+    private final Executor executor;
+
+    private final int maxInFlight;
+
+    private final boolean ordered;
+
+    /**
+     * 已提交的批次，只在调用线程上访问
+     */
+    private final Deque<BatchTask> inFlight = new ArrayDeque<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * 批次完成或出现异常时通知
+     */
+    private final Condition changed = lock.newCondition();
+
+    /**
+     * 正在执行的批次数量
+     */
+    private int running;
+
+    /**
+     * 最终抛出的异常（包括Error）及其批次序号
+     */
+    private Throwable failure;
+
+    private int failedIndex;
+
+    /**
+     * 出现异常，不再执行新的批次
+     */
+    private volatile boolean aborted;
+
+    /**
+     * 已主动取消其余批次，之后由中断导致的异常不再记录
+     */
+    private volatile boolean cancelled;
+
+    ParallelBatchExecutor(IntFunction<Consumer<List<T>>> consumers, BatchExePolicy batchExePolicy, BatchExecCounter counter) {
+        this.consumers = consumers;
+        this.batchExePolicy = batchExePolicy;
+        this.counter = counter;
+        this.executor = batchExePolicy.getExecutor();
+        Integer maxInFlight = batchExePolicy.getMaxInFlight();
+        this.maxInFlight = maxInFlight != null ? maxInFlight : Runtime.getRuntime().availableProcessors();
+        this.ordered = batchExePolicy.getCompletionOrder() == CompletionOrder.ORDERED;
+    }
+
+    /**
+     * 并行执行所有批次，等待全部完成后返回
+     */
+    void execute(BatchIterator<T> batches) throws Exception {
+        Duration intervalDuration = batchExePolicy.getIntervalDuration();
+        AdaptiveBatchSizer adaptiveBatchSizer = batchExePolicy.getAdaptiveBatchSizer();
+        BatchPacer pacer = BatchExecUtil.newPacer(batchExePolicy);
+        BatchCheckpoint checkpoint = batchExePolicy.getCheckpoint();
+        int index = 0;
+        try {
+            while (batches.hasNext()) {
+                if (!awaitSlot()) {
+                    break;
+                }
+                long startOffset = batches.position();
+                List<T> batchData = BatchExecUtil.nextBatch(batches, adaptiveBatchSizer);
+                // 从检查点继续执行时跳过已完成的批次
+                if (checkpoint != null && checkpoint.isCompleted(startOffset, startOffset + batchData.size())) {
+                    continue;
+                }
+                if (pacer != null) {
+                    pacer.acquire(batchData.size());
+                }
+                submit(new BatchTask(index, startOffset, batchData, consumers.apply(index)));
+                index++;
+
+                // 设置每个批次提交的间隔
+                if (pacer == null && batches.hasNext()) {
+                    BatchExecUtil.sleepInterval(intervalDuration);
+                }
+            }
+            awaitAll();
+        } catch (InterruptedException e) {
+            cancelAll();
+            throw e;
+        }
+
+        if (aborted) {
+            cancelAll();
+            Throwable e;
+            lock.lock();
+            try {
+                e = failure;
+            } finally {
+                lock.unlock();
+            }
+            // 与串行执行一致，批次中的Error原样抛给调用方
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+            throw (Exception) e;
+        }
+    }
+
+    private void submit(BatchTask task) {
+        lock.lock();
+        try {
+            running++;
+        } finally {
+            lock.unlock();
+        }
+        inFlight.addLast(task);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            recordFailure(task.index, e);
+            task.cancel(false);
+        }
+    }
+
+    /**
+     * 等待直到可以提交新的批次
+     *
+     * @return 出现异常需要终止时返回false
+     */
+    private boolean awaitSlot() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (!aborted && !hasSlot()) {
+                changed.await();
+            }
+            return !aborted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean hasSlot() {
+        if (ordered) {
+            // 只有最早提交的批次完成后才腾出位置
+            while (!inFlight.isEmpty() && inFlight.peekFirst().isDone()) {
+                inFlight.pollFirst();
+            }
+            return inFlight.size() < maxInFlight;
+        }
+        inFlight.removeIf(FutureTask::isDone);
+        return running < maxInFlight;
+    }
+
+    private void awaitAll() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (!aborted && running > 0) {
+                changed.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void cancelAll() {
+        cancelled = true;
+        for (BatchTask task : inFlight) {
+            task.cancel(true);
+        }
+        inFlight.clear();
+    }
+
+    private void recordFailure(int index, Throwable e) {
+        lock.lock();
+        try {
+            if (failure == null || (ordered && index < failedIndex)) {
+                failure = e;
+                failedIndex = index;
+            }
+            aborted = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private class BatchTask extends FutureTask<Void> {
+
+        private final int index;
+
+        BatchTask(int index, long startOffset, List<T> batchData, Consumer<List<T>> consumer) {
+            super(() -> {
+                if (!aborted) {
+                    try {
+                        BatchExecUtil.execBatch(consumer, index, startOffset, batchData, batchExePolicy, counter);
+                    } catch (Throwable e) {
+                        // FutureTask会吞掉异常，Error也需要记录下来由调用线程抛出
+                        if (!cancelled) {
+                            recordFailure(index, e);
+                        }
+                    }
+                }
+                return null;
+            });
+            this.index = index;
+        }
+
+        @Override
+        protected void done() {
+            lock.lock();
+            try {
+                running--;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
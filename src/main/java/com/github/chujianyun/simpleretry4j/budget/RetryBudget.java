@@ -0,0 +1,150 @@
+package com.github.chujianyun.simpleretry4j.budget;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 重试预算（令牌桶），限制所有线程的总重试量
+ * <p>
+ * 每次成功的调用存入depositRatio个令牌，每次重试消耗1个令牌，令牌不足时不再重试，
+ * 因此重试量最多是成功调用量的depositRatio倍。为了在冷启动或低流量时仍能重试，
+ * 每秒总是允许至少minRetriesPerSecond次重试。
+ * <p>
+ * 令牌余额使用 {@link AtomicLong} 记录，存入和取出都通过CAS完成，判断余额和修改余额是原子的，
+ * 重试风暴下并发取出也不会透支；余额已达上限时存入只读不写，正常流量下几乎没有竞争。
+ * 多个重试策略可以共享同一个重试预算。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 16:20
+ */
+public class RetryBudget {
+
+    /**
+     * 令牌的精度，余额以千分之一个令牌为单位
+     */
+    private static final long SCALE = 1000;
+
+    private final long depositAmount;
+
+    private final long maxBalance;
+
+    private final int minRetriesPerSecond;
+
+    private final AtomicLong balance = new AtomicLong();
+
+    /**
+     * 保底重试的计数，高32位是计数所在的秒，低32位是这一秒已用的次数，切换秒和计数一起原子地完成
+     */
+    private final AtomicLong floor = new AtomicLong();
+
+    private RetryBudget(Builder builder) {
+        this.depositAmount = Math.round(builder.depositRatio * SCALE);
+        this.maxBalance = builder.maxTokens * SCALE;
+        this.minRetriesPerSecond = builder.minRetriesPerSecond;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 成功调用后存入令牌
+     */
+    public void deposit() {
+        while (true) {
+            long current = balance.get();
+            if (current >= maxBalance) {
+                return;
+            }
+            if (balance.compareAndSet(current, Math.min(current + depositAmount, maxBalance))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 重试前取出一个令牌
+     *
+     * @return 预算不足时返回false，不应再重试
+     */
+    public boolean tryWithdraw() {
+        while (true) {
+            long current = balance.get();
+            if (current < SCALE) {
+                return tryWithdrawFloor();
+            }
+            if (balance.compareAndSet(current, current - SCALE)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 当前可用的重试次数（不含每秒保底的次数）
+     */
+    public long getAvailableTokens() {
+        return balance.get() / SCALE;
+    }
+
+    private boolean tryWithdrawFloor() {
+        if (minRetriesPerSecond <= 0) {
+            return false;
+        }
+        long second = (System.nanoTime() / 1_000_000_000L) & 0xFFFFFFFFL;
+        while (true) {
+            long current = floor.get();
+            long used = current >>> 32 == second ? current & 0xFFFFFFFFL : 0;
+            if (used >= minRetriesPerSecond) {
+                return false;
+            }
+            if (floor.compareAndSet(current, second << 32 | (used + 1))) {
+                return true;
+            }
+        }
+    }
+
+    public static class Builder {
+
+        private double depositRatio = 0.1;
+
+        private int minRetriesPerSecond = 10;
+
+        private long maxTokens = 1000;
+
+        /**
+         * 每次成功调用存入的令牌数，即重试量与成功量的最大比例，默认0.1
+         */
+        public Builder depositRatio(double depositRatio) {
+            if (depositRatio <= 0 || Double.isNaN(depositRatio) || Double.isInfinite(depositRatio)) {
+                throw new IllegalArgumentException("depositRatio must be positive");
+            }
+            this.depositRatio = depositRatio;
+            return this;
+        }
+
+        /**
+         * 每秒保底允许的重试次数，默认10
+         */
+        public Builder minRetriesPerSecond(int minRetriesPerSecond) {
+            if (minRetriesPerSecond < 0) {
+                throw new IllegalArgumentException("minRetriesPerSecond must not be negative");
+            }
+            this.minRetriesPerSecond = minRetriesPerSecond;
+            return this;
+        }
+
+        /**
+         * 最多积攒的令牌数，避免长时间正常后故障时积攒的令牌引发大量重试，默认1000
+         */
+        public Builder maxTokens(long maxTokens) {
+            if (maxTokens <= 0 || maxTokens > Long.MAX_VALUE / SCALE) {
+                throw new IllegalArgumentException("maxTokens must be positive");
+            }
+            this.maxTokens = maxTokens;
+            return this;
+        }
+
+        public RetryBudget build() {
+            return new RetryBudget(this);
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.github.chujianyun.simpleretry4j.bulkhead;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 舱壁（并发数限制）
+ * <p>
+ * 限制同时访问同一个依赖的调用数量，重试的每次尝试都需要获取许可，重试间隔期间不占用许可。
+ * 没有可用许可时最多等待maxWaitDuration，默认不等待直接拒绝。
+ * <p>
+ * 并发上限可以是固定的，也可以按梯度算法自适应：记录尝试的最小耗时，
+ * 每个采样窗口结束后按 最小耗时/窗口内的平均耗时 的比例缩放上限并加上sqrt(上限)的余量，
+ * 耗时接近最小耗时时上限逐渐增加，依赖变慢排队时上限随之减小。
+ * <p>
+ * 获取许可的快速路径只有一次CAS，没有可用许可需要等待时才加锁。自适应时归还许可只把耗时无锁地记入当前窗口，
+ * 填满窗口的线程换上新窗口并重新计算上限，计算期间其他线程不等待。同一个舱壁可以被多个重试策略共享。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 21:55
+ */
+public class Bulkhead {
+
+    /**
+     * 自适应上限的平滑系数
+     */
+    private static final double SMOOTHING = 0.2;
+
+    /**
+     * 每隔多少次尝试重新探测最小耗时，避免依赖永久变慢后上限一直偏低
+     */
+    private static final int MIN_RTT_RESET_SAMPLES = 1000;
+
+    /**
+     * 每个采样窗口的尝试次数
+     */
+    private static final int WINDOW_SAMPLES = 16;
+
+    private final boolean adaptive;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long maxWaitNanos;
+
+    /**
+     * 当前的并发上限
+     */
+    private volatile int limit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition released = lock.newCondition();
+
+    /**
+     * 等待许可的线程数，在lock内修改
+     */
+    private volatile int waiters;
+
+    /**
+     * 当前的采样窗口
+     */
+    private final AtomicReference<Window> window = new AtomicReference<>(new Window());
+
+    private final AtomicLong minRttNanos = new AtomicLong(Long.MAX_VALUE);
+
+    /**
+     * 正在重新计算上限，同一时刻只有一个线程计算，其他线程跳过
+     */
+    private final AtomicBoolean updating = new AtomicBoolean();
+
+    /**
+     * 自适应上限的状态，只在持有updating时访问
+     */
+    private double estimatedLimit;
+
+    private int windows;
+
+    private Bulkhead(Builder builder) {
+        this.adaptive = builder.adaptive;
+        this.minLimit = builder.adaptive ? builder.minLimit : builder.maxConcurrentCalls;
+        this.maxLimit = builder.adaptive ? builder.maxLimit : builder.maxConcurrentCalls;
+        if (minLimit > maxLimit) {
+            throw new IllegalArgumentException("minLimit must not be greater than maxLimit");
+        }
+        this.maxWaitNanos = builder.maxWaitDuration.toNanos();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, builder.maxConcurrentCalls));
+        this.estimatedLimit = limit;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 不等待获取许可
+     *
+     * @return 没有可用许可时返回false
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 获取许可，没有可用许可时最多等待maxWaitDuration
+     *
+     * @return 等待超时仍没有可用许可时返回false
+     */
+    public boolean acquire() throws InterruptedException {
+        if (tryAcquire()) {
+            return true;
+        }
+        if (maxWaitNanos <= 0) {
+            return false;
+        }
+
+        long remainingNanos = maxWaitNanos;
+        lock.lockInterruptibly();
+        try {
+            waiters++;
+            try {
+                while (!tryAcquire()) {
+                    if (remainingNanos <= 0) {
+                        return false;
+                    }
+                    remainingNanos = released.awaitNanos(remainingNanos);
+                }
+                return true;
+            } finally {
+                waiters--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 归还许可
+     *
+     * @param elapsedNanos 持有许可期间尝试的耗时，用于自适应上限
+     */
+    public void release(long elapsedNanos) {
+        int current = inFlight.getAndDecrement();
+        if (adaptive && elapsedNanos > 0) {
+            sample(elapsedNanos, current);
+        }
+        if (waiters > 0) {
+            lock.lock();
+            try {
+                released.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 当前的并发上限
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * 正在执行的尝试数量
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 把本次耗时记入当前窗口，填满窗口的线程换上新窗口并重新计算上限
+     */
+    private void sample(long rttNanos, int inFlightBeforeRelease) {
+        updateMin(minRttNanos, rttNanos);
+        Window current = window.get();
+        current.record(rttNanos, inFlightBeforeRelease);
+        if (current.count.incrementAndGet() != WINDOW_SAMPLES) {
+            return;
+        }
+        window.compareAndSet(current, new Window());
+        // 上一个窗口还在计算时丢弃本窗口，不等待
+        if (!updating.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            updateLimit(current);
+        } finally {
+            updating.set(false);
+        }
+    }
+
+    private void updateLimit(Window sampled) {
+        long minRtt = minRttNanos.get();
+        if (++windows % (MIN_RTT_RESET_SAMPLES / WINDOW_SAMPLES) == 0) {
+            // 用本窗口的最小耗时重新开始统计
+            minRttNanos.set(sampled.minRttNanos.get());
+        }
+        long averageRtt = sampled.rttSumNanos.get() / WINDOW_SAMPLES;
+        if (averageRtt <= 0) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, (double) minRtt / averageRtt));
+        // 并发数远低于上限时耗时正常不能说明上限还可以增加
+        if (gradient >= 1.0 && sampled.maxInFlight.get() < estimatedLimit / 2) {
+            return;
+        }
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+        limit = (int) estimatedLimit;
+    }
+
+    private static void updateMin(AtomicLong min, long value) {
+        long current;
+        while (value < (current = min.get())) {
+            if (min.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 一个采样窗口内的耗时统计，填满后整体替换
+     */
+    private static final class Window {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        private final AtomicLong rttSumNanos = new AtomicLong();
+
+        private final AtomicLong minRttNanos = new AtomicLong(Long.MAX_VALUE);
+
+        /**
+         * 窗口内归还许可前的最大并发数
+         */
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+
+        private void record(long rttNanos, int inFlight) {
+            rttSumNanos.addAndGet(rttNanos);
+            updateMin(minRttNanos, rttNanos);
+            int current;
+            while (inFlight > (current = maxInFlight.get())) {
+                if (maxInFlight.compareAndSet(current, inFlight)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    public static class Builder {
+
+        private int maxConcurrentCalls = 25;
+
+        private Duration maxWaitDuration = Duration.ZERO;
+
+        private boolean adaptive;
+
+        private int minLimit;
+
+        private int maxLimit;
+
+        /**
+         * 最大并发数，默认25，自适应时为初始的并发上限
+         */
+        public Builder maxConcurrentCalls(int maxConcurrentCalls) {
+            if (maxConcurrentCalls <= 0) {
+                throw new IllegalArgumentException("maxConcurrentCalls must be positive");
+            }
+            this.maxConcurrentCalls = maxConcurrentCalls;
+            return this;
+        }
+
+        /**
+         * 没有可用许可时的最长等待时间，默认不等待（异步重试始终不等待）
+         */
+        public Builder maxWaitDuration(Duration maxWaitDuration) {
+            if (maxWaitDuration == null || maxWaitDuration.isNegative()) {
+                throw new IllegalArgumentException("maxWaitDuration must not be null or negative");
+            }
+            this.maxWaitDuration = maxWaitDuration;
+            return this;
+        }
+
+        /**
+         * 按尝试的耗时在最小和最大并发上限之间自适应调整
+         */
+        public Builder adaptiveLimit(int minLimit, int maxLimit) {
+            if (minLimit <= 0 || maxLimit <= 0) {
+                throw new IllegalArgumentException("minLimit and maxLimit must be positive");
+            }
+            this.adaptive = true;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        public Bulkhead build() {
+            return new Bulkhead(this);
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package com.github.chujianyun.simpleretry4j.circuitbreaker;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 熔断器
+ * <p>
+ * 关闭状态下统计最近slidingWindowSize次调用的失败率，达到阈值后打开；
+ * 打开状态下所有调用快速失败，等待waitDurationInOpenState后进入半开状态；
+ * 半开状态下只放行permittedCallsInHalfOpenState次探测调用，全部成功则关闭，任意一次失败则重新打开；
+ * 探测调用全部发出后超过maxWaitDurationInHalfOpenState仍没有结果时重新放行探测调用，
+ * 避免没有记录结果的探测调用使熔断器永远拒绝调用。
+ * <p>
+ * 状态的切换通过CAS替换不可变的状态对象完成，不加锁。同一个熔断器可以被多个重试策略共享。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 15:10
+ */
+public class CircuitBreaker {
+
+    public enum State {
+
+        /**
+         * 关闭，正常放行
+         */
+        CLOSED,
+
+        /**
+         * 打开，快速失败
+         */
+        OPEN,
+
+        /**
+         * 半开，放行有限的探测调用
+         */
+        HALF_OPEN
+    }
+
+    private final float failureRateThreshold;
+
+    private final int slidingWindowSize;
+
+    private final int minimumNumberOfCalls;
+
+    private final long waitNanosInOpenState;
+
+    private final int permittedCallsInHalfOpenState;
+
+    private final long maxWaitNanosInHalfOpenState;
+
+    private final AtomicReference<CircuitState> state;
+
+    private CircuitBreaker(Builder builder) {
+        this.failureRateThreshold = builder.failureRateThreshold;
+        this.slidingWindowSize = builder.slidingWindowSize;
+        this.minimumNumberOfCalls = Math.min(builder.minimumNumberOfCalls, builder.slidingWindowSize);
+        this.waitNanosInOpenState = builder.waitDurationInOpenState.toNanos();
+        this.permittedCallsInHalfOpenState = builder.permittedCallsInHalfOpenState;
+        this.maxWaitNanosInHalfOpenState = builder.maxWaitDurationInHalfOpenState.toNanos();
+        this.state = new AtomicReference<>(closed());
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 尝试获取调用许可，半开状态下会占用一次探测机会
+     *
+     * @return 熔断器打开或探测机会已用完时返回false
+     */
+    public boolean tryAcquirePermission() {
+        while (true) {
+            CircuitState current = state.get();
+            switch (current.state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (!isElapsed(current, waitNanosInOpenState)) {
+                        return false;
+                    }
+                    state.compareAndSet(current, halfOpen());
+                    break;
+                default:
+                    if (current.acquireProbe()) {
+                        return true;
+                    }
+                    // 探测调用迟迟没有结果，重新开始半开状态
+                    if (!isElapsed(current, maxWaitNanosInHalfOpenState)) {
+                        return false;
+                    }
+                    state.compareAndSet(current, halfOpen());
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 归还获取的许可，不记录调用结果，用于获取许可后调用没有真正执行或被调用方中断的情况，
+     * 半开状态下归还占用的探测机会
+     */
+    public void releasePermission() {
+        CircuitState current = state.get();
+        if (current.state == State.HALF_OPEN) {
+            current.releaseProbe(permittedCallsInHalfOpenState);
+        }
+    }
+
+    /**
+     * 当前是否允许调用，不占用探测机会，用于重试前判断是否还值得等待
+     */
+    public boolean isCallPermitted() {
+        CircuitState current = state.get();
+        switch (current.state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                return isElapsed(current, waitNanosInOpenState);
+            default:
+                return current.probes.get() > 0 || isElapsed(current, maxWaitNanosInHalfOpenState);
+        }
+    }
+
+    /**
+     * 记录一次成功的调用
+     */
+    public void onSuccess() {
+        CircuitState current = state.get();
+        if (current.state == State.CLOSED) {
+            current.window.record(false);
+        } else if (current.state == State.HALF_OPEN) {
+            if (current.probeSuccesses.incrementAndGet() >= permittedCallsInHalfOpenState) {
+                state.compareAndSet(current, closed());
+            }
+        }
+    }
+
+    /**
+     * 记录一次失败的调用
+     */
+    public void onError() {
+        CircuitState current = state.get();
+        if (current.state == State.CLOSED) {
+            current.window.record(true);
+            if (current.window.exceedsThreshold()) {
+                state.compareAndSet(current, open());
+            }
+        } else if (current.state == State.HALF_OPEN) {
+            state.compareAndSet(current, open());
+        }
+    }
+
+    public State getState() {
+        return state.get().state;
+    }
+
+    /**
+     * 关闭状态下滑动窗口内的失败率（百分比），调用次数不足最小调用次数或不在关闭状态时返回-1
+     */
+    public float getFailureRate() {
+        CircuitState current = state.get();
+        if (current.state != State.CLOSED) {
+            return -1;
+        }
+        return current.window.failureRate();
+    }
+
+    /**
+     * 强制恢复到关闭状态
+     */
+    public void reset() {
+        state.set(closed());
+    }
+
+    private boolean isElapsed(CircuitState current, long durationNanos) {
+        return System.nanoTime() - current.enteredAtNanos >= durationNanos;
+    }
+
+    private CircuitState closed() {
+        return new CircuitState(State.CLOSED, 0, new SlidingWindow(), 0);
+    }
+
+    private CircuitState open() {
+        return new CircuitState(State.OPEN, System.nanoTime(), null, 0);
+    }
+
+    private CircuitState halfOpen() {
+        return new CircuitState(State.HALF_OPEN, System.nanoTime(), null, permittedCallsInHalfOpenState);
+    }
+
+    /**
+     * 不可变的状态，状态内的计数器只属于当前状态，切换状态时整体替换
+     */
+    private static final class CircuitState {
+
+        private final State state;
+
+        /**
+         * 进入当前状态的时间
+         */
+        private final long enteredAtNanos;
+
+        private final SlidingWindow window;
+
+        /**
+         * 半开状态下剩余的探测机会
+         */
+        private final AtomicInteger probes;
+
+        private final AtomicInteger probeSuccesses = new AtomicInteger();
+
+        private CircuitState(State state, long enteredAtNanos, SlidingWindow window, int probes) {
+            this.state = state;
+            this.enteredAtNanos = enteredAtNanos;
+            this.window = window;
+            this.probes = new AtomicInteger(probes);
+        }
+
+        private boolean acquireProbe() {
+            while (true) {
+                int remaining = probes.get();
+                if (remaining <= 0) {
+                    return false;
+                }
+                if (probes.compareAndSet(remaining, remaining - 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void releaseProbe(int permitted) {
+            while (true) {
+                int remaining = probes.get();
+                if (remaining >= permitted) {
+                    return;
+                }
+                if (probes.compareAndSet(remaining, remaining + 1)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 基于调用次数的滑动窗口，环形数组记录最近的调用结果
+     */
+    private final class SlidingWindow {
+
+        private static final int EMPTY = 0;
+
+        private static final int SUCCESS = 1;
+
+        private static final int FAILURE = 2;
+
+        private final AtomicIntegerArray outcomes = new AtomicIntegerArray(slidingWindowSize);
+
+        private final AtomicLong cursor = new AtomicLong();
+
+        private final AtomicInteger recorded = new AtomicInteger();
+
+        private final AtomicInteger failures = new AtomicInteger();
+
+        private void record(boolean failure) {
+            int index = (int) (cursor.getAndIncrement() % slidingWindowSize);
+            int previous = outcomes.getAndSet(index, failure ? FAILURE : SUCCESS);
+            if (previous == EMPTY) {
+                recorded.incrementAndGet();
+            } else if (previous == FAILURE) {
+                failures.decrementAndGet();
+            }
+            if (failure) {
+                failures.incrementAndGet();
+            }
+        }
+
+        private float failureRate() {
+            int total = recorded.get();
+            if (total < minimumNumberOfCalls) {
+                return -1;
+            }
+            return failures.get() * 100.0f / total;
+        }
+
+        private boolean exceedsThreshold() {
+            float failureRate = failureRate();
+            return failureRate >= 0 && failureRate >= failureRateThreshold;
+        }
+    }
+
+    public static class Builder {
+
+        private float failureRateThreshold = 50;
+
+        private int slidingWindowSize = 100;
+
+        private int minimumNumberOfCalls = 10;
+
+        private Duration waitDurationInOpenState = Duration.ofSeconds(60);
+
+        private int permittedCallsInHalfOpenState = 10;
+
+        private Duration maxWaitDurationInHalfOpenState = Duration.ofSeconds(60);
+
+        /**
+         * 打开熔断器的失败率阈值（百分比），默认50
+         */
+        public Builder failureRateThreshold(float failureRateThreshold) {
+            if (failureRateThreshold <= 0 || failureRateThreshold > 100) {
+                throw new IllegalArgumentException("failureRateThreshold must be between 0 and 100");
+            }
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        /**
+         * 统计失败率的滑动窗口大小（调用次数），默认100
+         */
+        public Builder slidingWindowSize(int slidingWindowSize) {
+            if (slidingWindowSize <= 0) {
+                throw new IllegalArgumentException("slidingWindowSize must be positive");
+            }
+            this.slidingWindowSize = slidingWindowSize;
+            return this;
+        }
+
+        /**
+         * 计算失败率需要的最小调用次数，默认10
+         */
+        public Builder minimumNumberOfCalls(int minimumNumberOfCalls) {
+            if (minimumNumberOfCalls <= 0) {
+                throw new IllegalArgumentException("minimumNumberOfCalls must be positive");
+            }
+            this.minimumNumberOfCalls = minimumNumberOfCalls;
+            return this;
+        }
+
+        /**
+         * 打开后进入半开状态前的等待时间，默认60秒
+         */
+        public Builder waitDurationInOpenState(Duration waitDurationInOpenState) {
+            if (waitDurationInOpenState == null || waitDurationInOpenState.isNegative()) {
+                throw new IllegalArgumentException("waitDurationInOpenState must not be null or negative");
+            }
+            this.waitDurationInOpenState = waitDurationInOpenState;
+            return this;
+        }
+
+        /**
+         * 半开状态下允许的探测调用次数，默认10
+         */
+        public Builder permittedCallsInHalfOpenState(int permittedCallsInHalfOpenState) {
+            if (permittedCallsInHalfOpenState <= 0) {
+                throw new IllegalArgumentException("permittedCallsInHalfOpenState must be positive");
+            }
+            this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+            return this;
+        }
+
+        /**
+         * 半开状态下探测调用全部发出后等待结果的最长时间，超过后重新放行探测调用，默认60秒
+         */
+        public Builder maxWaitDurationInHalfOpenState(Duration maxWaitDurationInHalfOpenState) {
+            if (maxWaitDurationInHalfOpenState == null || maxWaitDurationInHalfOpenState.isNegative()) {
+                throw new IllegalArgumentException("maxWaitDurationInHalfOpenState must not be null or negative");
+            }
+            this.maxWaitDurationInHalfOpenState = maxWaitDurationInHalfOpenState;
+            return this;
+        }
+
+        public CircuitBreaker build() {
+            return new CircuitBreaker(this);
+        }
+    }
+}
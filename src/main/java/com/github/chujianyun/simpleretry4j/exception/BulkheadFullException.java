@@ -0,0 +1,18 @@
+package com.github.chujianyun.simpleretry4j.exception;
+
+/**
+ * 并发数达到舱壁上限时快速失败抛出的异常
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 21:50
+ */
+public class BulkheadFullException extends RuntimeException {
+
+    public BulkheadFullException(String message) {
+        super(message);
+    }
+
+    public BulkheadFullException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
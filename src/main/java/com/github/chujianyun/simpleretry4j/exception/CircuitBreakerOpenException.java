@@ -0,0 +1,18 @@
+package com.github.chujianyun.simpleretry4j.exception;
+
+/**
+ * 熔断器打开时快速失败抛出的异常
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 15:02
+ */
+public class CircuitBreakerOpenException extends RuntimeException {
+
+    public CircuitBreakerOpenException(String message) {
+        super(message);
+    }
+
+    public CircuitBreakerOpenException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
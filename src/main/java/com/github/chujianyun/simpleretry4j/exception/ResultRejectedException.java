@@ -0,0 +1,24 @@
+package com.github.chujianyun.simpleretry4j.exception;
+
+/**
+ * 返回值被分类为失败（{@link com.github.chujianyun.simpleretry4j.ResultDecision#FAIL}）时抛出的异常，不会重试
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-19 05:00
+ */
+public class ResultRejectedException extends RuntimeException {
+
+    private final transient Object result;
+
+    public ResultRejectedException(Object result) {
+        super("返回值不可接受：" + result);
+        this.result = result;
+    }
+
+    /**
+     * 被拒绝的返回值
+     */
+    public Object getResult() {
+        return result;
+    }
+}
@@ -0,0 +1,145 @@
+package com.github.chujianyun.simpleretry4j.hedge;
+
+import com.github.chujianyun.simpleretry4j.metrics.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 对冲请求策略
+ * <p>
+ * 一次尝试开始后经过对冲延时还没有可用的结果时，再并行发起一次相同的尝试，取最先返回的可用结果，其余尝试被取消。
+ * 对冲延时可以是固定值，也可以按最近尝试耗时的分位数（如p95）学习得到：
+ * 每记录window次耗时重新计算一次分位数并清空统计，学习到第一个分位数之前使用固定的延时。
+ * <p>
+ * 只适用于幂等的操作。同一个对冲策略可以被多个重试策略共享，共同学习耗时。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 20:50
+ */
+public class HedgePolicy {
+
+    private final long delayNanos;
+
+    private final int maxHedges;
+
+    /**
+     * 学习的分位数，不学习时为0
+     */
+    private final double percentile;
+
+    private final int window;
+
+    private final LatencyHistogram latencies;
+
+    private final AtomicLong samples = new AtomicLong();
+
+    /**
+     * 学习到的对冲延时，还未学习到时为-1
+     */
+    private volatile long learnedDelayNanos = -1;
+
+    private HedgePolicy(Builder builder) {
+        if (builder.delay == null) {
+            throw new IllegalArgumentException("delay must be set");
+        }
+        this.delayNanos = builder.delay.toNanos();
+        this.maxHedges = builder.maxHedges;
+        this.percentile = builder.percentile;
+        this.window = builder.window;
+        this.latencies = builder.percentile > 0 ? new LatencyHistogram() : null;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 当前的对冲延时（纳秒）
+     */
+    public long getDelayNanos() {
+        long learned = learnedDelayNanos;
+        return learned >= 0 ? learned : delayNanos;
+    }
+
+    /**
+     * 一次尝试最多额外发起的对冲次数
+     */
+    public int getMaxHedges() {
+        return maxHedges;
+    }
+
+    /**
+     * 记录一次正常返回的尝试的耗时，不学习分位数时忽略
+     */
+    public void recordLatency(long elapsedNanos) {
+        if (latencies == null) {
+            return;
+        }
+        latencies.record(elapsedNanos);
+        if (samples.incrementAndGet() % window == 0) {
+            // 清空与并发记录之间的竞争最多丢失少量样本，不影响分位数的估计
+            learnedDelayNanos = latencies.getPercentile(percentile);
+            latencies.reset();
+        }
+    }
+
+    public static class Builder {
+
+        private Duration delay;
+
+        private int maxHedges = 1;
+
+        private double percentile;
+
+        private int window = 100;
+
+        /**
+         * 固定的对冲延时，学习分位数时作为学习到第一个分位数之前的延时，必须设置
+         */
+        public Builder delay(Duration delay) {
+            if (delay == null || delay.isNegative()) {
+                throw new IllegalArgumentException("delay must not be null or negative");
+            }
+            this.delay = delay;
+            return this;
+        }
+
+        /**
+         * 一次尝试最多额外发起的对冲次数，默认1
+         */
+        public Builder maxHedges(int maxHedges) {
+            if (maxHedges <= 0) {
+                throw new IllegalArgumentException("maxHedges must be positive");
+            }
+            this.maxHedges = maxHedges;
+            return this;
+        }
+
+        /**
+         * 按最近尝试耗时的分位数学习对冲延时，如95
+         */
+        public Builder percentile(double percentile) {
+            if (percentile <= 0 || percentile >= 100) {
+                throw new IllegalArgumentException("percentile must be between 0 and 100");
+            }
+            this.percentile = percentile;
+            return this;
+        }
+
+        /**
+         * 每记录多少次耗时重新计算一次分位数，默认100
+         */
+        public Builder window(int window) {
+            if (window <= 0) {
+                throw new IllegalArgumentException("window must be positive");
+            }
+            this.window = window;
+            return this;
+        }
+
+        public HedgePolicy build() {
+            return new HedgePolicy(this);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.chujianyun.simpleretry4j.metrics;
+
+/**
+ * 分批执行的监听器
+ * <p>
+ * 并行执行时回调在执行批次的线程上调用，实现需要是线程安全的。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 18:15
+ * @see RetryMetrics
+ */
+public interface BatchListener {
+
+    /**
+     * 开始执行一个批次
+     *
+     * @param batchIndex 批次序号，从0开始
+     * @param size       批次的元素个数
+     */
+    default void onBatchStart(int batchIndex, int size) {
+    }
+
+    /**
+     * 一个批次执行结束（包括失败策略中的重试）
+     *
+     * @param elapsedNanos 批次的耗时
+     * @param failure      批次的异常（忽略策略下被忽略的异常也会传入），成功时为null
+     */
+    default void onBatchEnd(int batchIndex, int size, long elapsedNanos, Throwable failure) {
+    }
+}
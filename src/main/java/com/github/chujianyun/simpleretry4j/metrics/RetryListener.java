@@ -0,0 +1,82 @@
+package com.github.chujianyun.simpleretry4j.metrics;
+
+/**
+ * 重试过程的监听器
+ * <p>
+ * 所有方法都有空的默认实现，按需覆盖即可。回调在执行重试的线程（异步重试时为定时器或完成操作的线程）上同步调用，
+ * 实现应当快速返回且不抛出异常。未设置监听器时重试过程不会产生任何额外的对象分配。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 18:10
+ * @see RetryMetrics
+ */
+public interface RetryListener {
+
+    /**
+     * 开始一次尝试
+     *
+     * @param attempt 第几次尝试，从1开始
+     */
+    default void onAttemptStart(int attempt) {
+    }
+
+    /**
+     * 尝试正常返回（返回值是否需要重试由终止条件决定）
+     *
+     * @param elapsedNanos 本次尝试的耗时
+     */
+    default void onAttemptSuccess(int attempt, long elapsedNanos) {
+    }
+
+    /**
+     * 尝试抛出异常
+     *
+     * @param elapsedNanos 本次尝试的耗时
+     */
+    default void onAttemptFailure(int attempt, Throwable failure, long elapsedNanos) {
+    }
+
+    /**
+     * 获取到舱壁的许可
+     *
+     * @param waitNanos 等待许可的时间，没有等待时为0
+     */
+    default void onBulkheadAcquired(int attempt, long waitNanos) {
+    }
+
+    /**
+     * 舱壁已满，尝试被拒绝
+     */
+    default void onBulkheadRejected(int attempt) {
+    }
+
+    /**
+     * 即将进行下一次重试
+     *
+     * @param retryCount  第几次重试，从1开始
+     * @param delayMillis 重试前的延时
+     */
+    default void onRetryScheduled(int retryCount, long delayMillis) {
+    }
+
+    /**
+     * 遇到不需要重试的异常而终止
+     */
+    default void onAbortByException(int attempt, Exception exception) {
+    }
+
+    /**
+     * 返回值满足终止条件而终止（未设置终止条件时不回调）
+     */
+    default void onAbortByCondition(int attempt, Object result) {
+    }
+
+    /**
+     * 没有下一次重试（达到最大重试次数、超过总时长或重试预算不足）
+     *
+     * @param attempts    总尝试次数
+     * @param lastFailure 最后一次尝试的异常，返回值不满足终止条件时为null
+     */
+    default void onExhausted(int attempts, Throwable lastFailure) {
+    }
+}
@@ -0,0 +1,181 @@
+package com.github.chujianyun.simpleretry4j.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于 {@link LongAdder} 计数的默认监听器实现
+ * <p>
+ * 可以同时作为重试策略和批量执行策略的监听器，多个策略可以共享同一个实例汇总统计。
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 18:40
+ */
+public class RetryMetrics implements RetryListener, BatchListener {
+
+    private final LongAdder attempts = new LongAdder();
+
+    private final LongAdder attemptSuccesses = new LongAdder();
+
+    private final LongAdder attemptFailures = new LongAdder();
+
+    private final LongAdder retries = new LongAdder();
+
+    private final LongAdder retryDelayMillis = new LongAdder();
+
+    private final LongAdder abortsByException = new LongAdder();
+
+    private final LongAdder abortsByCondition = new LongAdder();
+
+    private final LongAdder exhausted = new LongAdder();
+
+    private final LatencyHistogram attemptLatency = new LatencyHistogram();
+
+    private final LongAdder bulkheadRejections = new LongAdder();
+
+    private final LatencyHistogram bulkheadWait = new LatencyHistogram();
+
+    private final LongAdder batches = new LongAdder();
+
+    private final LongAdder batchFailures = new LongAdder();
+
+    private final LongAdder batchItems = new LongAdder();
+
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+
+    @Override
+    public void onAttemptStart(int attempt) {
+        attempts.increment();
+    }
+
+    @Override
+    public void onAttemptSuccess(int attempt, long elapsedNanos) {
+        attemptSuccesses.increment();
+        attemptLatency.record(elapsedNanos);
+    }
+
+    @Override
+    public void onAttemptFailure(int attempt, Throwable failure, long elapsedNanos) {
+        attemptFailures.increment();
+        attemptLatency.record(elapsedNanos);
+    }
+
+    @Override
+    public void onBulkheadAcquired(int attempt, long waitNanos) {
+        bulkheadWait.record(waitNanos);
+    }
+
+    @Override
+    public void onBulkheadRejected(int attempt) {
+        bulkheadRejections.increment();
+    }
+
+    @Override
+    public void onRetryScheduled(int retryCount, long delayMillis) {
+        retries.increment();
+        retryDelayMillis.add(delayMillis);
+    }
+
+    @Override
+    public void onAbortByException(int attempt, Exception exception) {
+        abortsByException.increment();
+    }
+
+    @Override
+    public void onAbortByCondition(int attempt, Object result) {
+        abortsByCondition.increment();
+    }
+
+    @Override
+    public void onExhausted(int attempts, Throwable lastFailure) {
+        exhausted.increment();
+    }
+
+    @Override
+    public void onBatchStart(int batchIndex, int size) {
+        batches.increment();
+        batchItems.add(size);
+    }
+
+    @Override
+    public void onBatchEnd(int batchIndex, int size, long elapsedNanos, Throwable failure) {
+        if (failure != null) {
+            batchFailures.increment();
+        }
+        batchLatency.record(elapsedNanos);
+    }
+
+    /**
+     * 总尝试次数（含第一次）
+     */
+    public long getAttempts() {
+        return attempts.sum();
+    }
+
+    public long getAttemptSuccesses() {
+        return attemptSuccesses.sum();
+    }
+
+    public long getAttemptFailures() {
+        return attemptFailures.sum();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * 重试前累计的延时
+     */
+    public long getRetryDelayMillis() {
+        return retryDelayMillis.sum();
+    }
+
+    public long getAbortsByException() {
+        return abortsByException.sum();
+    }
+
+    public long getAbortsByCondition() {
+        return abortsByCondition.sum();
+    }
+
+    public long getExhausted() {
+        return exhausted.sum();
+    }
+
+    /**
+     * 单次尝试的耗时分布（纳秒）
+     */
+    public LatencyHistogram getAttemptLatency() {
+        return attemptLatency;
+    }
+
+    public long getBulkheadRejections() {
+        return bulkheadRejections.sum();
+    }
+
+    /**
+     * 等待舱壁许可的时间分布（纳秒）
+     */
+    public LatencyHistogram getBulkheadWait() {
+        return bulkheadWait;
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public long getBatchFailures() {
+        return batchFailures.sum();
+    }
+
+    public long getBatchItems() {
+        return batchItems.sum();
+    }
+
+    /**
+     * 每个批次的耗时分布（纳秒）
+     */
+    public LatencyHistogram getBatchLatency() {
+        return batchLatency;
+    }
+}
@@ -0,0 +1,299 @@
+package com.github.chujianyun.simpleretry4j;
+
+import com.github.chujianyun.simpleretry4j.budget.RetryBudget;
+import com.github.chujianyun.simpleretry4j.circuitbreaker.CircuitBreaker;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.InvalidClassException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 持久化的延迟重试队列测试
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-19 03:00
+ */
+public class DeferredRetryQueueTest {
+
+    /**
+     * 失败后写入队列，到期后重试直到成功，成功后删除段文件
+     */
+    @Test
+    public void retryUntilSuccess() throws Exception {
+        Path directory = Files.createTempDirectory("deferred");
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxRetries(5)
+                .delayDuration(Duration.ofMillis(20))
+                .build();
+
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        try (DeferredRetryQueue<String> queue = DeferredRetryQueue.<String>builder()
+                .directory(directory)
+                .retryPolicy(retryPolicy)
+                .minDeferDuration(Duration.ofMillis(10))
+                .segmentBytes(64)
+                .handler(task -> {
+                    if (attempts.incrementAndGet() < 3) {
+                        throw new IllegalStateException("not yet");
+                    }
+                    done.countDown();
+                })
+                .build()) {
+
+            Assert.assertFalse(queue.execute("order-1"));
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assert.assertEquals(3, attempts.get());
+            waitUntilEmpty(queue);
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * 关闭时未到期的任务保留在文件中，重新打开后继续执行；超过重试次数后交给死信处理
+     */
+    @Test
+    public void resumeAfterReopen() throws Exception {
+        Path directory = Files.createTempDirectory("deferred");
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxRetries(1)
+                .delayDuration(Duration.ofMillis(200))
+                .build();
+
+        try (DeferredRetryQueue<String> queue = DeferredRetryQueue.<String>builder()
+                .directory(directory)
+                .retryPolicy(retryPolicy)
+                .minDeferDuration(Duration.ofMillis(10))
+                .handler(task -> {
+                    throw new IllegalStateException("down");
+                })
+                .build()) {
+            Assert.assertFalse(queue.execute("a"));
+            Assert.assertFalse(queue.execute("b"));
+            Assert.assertEquals(2, queue.size());
+        }
+
+        List<String> handled = new CopyOnWriteArrayList<>();
+        List<String> deadLetters = new CopyOnWriteArrayList<>();
+        try (DeferredRetryQueue<String> queue = DeferredRetryQueue.<String>builder()
+                .directory(directory)
+                .retryPolicy(retryPolicy)
+                .minDeferDuration(Duration.ofMillis(10))
+                .deadLetterSink((task, cause) -> deadLetters.add(task))
+                .handler(task -> {
+                    handled.add(task);
+                    if ("b".equals(task)) {
+                        throw new IllegalStateException("still down");
+                    }
+                })
+                .build()) {
+            Assert.assertEquals(2, queue.size());
+            waitUntilEmpty(queue);
+            Assert.assertTrue(handled.contains("a"));
+            Assert.assertEquals(1, deadLetters.size());
+            Assert.assertEquals("b", deadLetters.get(0));
+        }
+
+        try (DeferredRetryQueue<String> queue = DeferredRetryQueue.<String>builder()
+                .directory(directory)
+                .retryPolicy(retryPolicy)
+                .handler(handled::add)
+                .build()) {
+            Assert.assertEquals(0, queue.size());
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * 熔断器打开时不执行任务，只推迟，不计入尝试次数也不消耗重试预算，熔断器恢复后再执行
+     */
+    @Test
+    public void deferWhileCircuitOpen() throws Exception {
+        Path directory = Files.createTempDirectory("deferred");
+        CircuitBreaker circuitBreaker = CircuitBreaker.builder()
+                .slidingWindowSize(1)
+                .minimumNumberOfCalls(1)
+                .build();
+        circuitBreaker.onError();
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxRetries(1)
+                .circuitBreaker(circuitBreaker)
+                .retryBudget(RetryBudget.builder().minRetriesPerSecond(0).build())
+                .build();
+
+        AtomicInteger attempts = new AtomicInteger();
+        try (DeferredRetryQueue<String> queue = DeferredRetryQueue.<String>builder()
+                .directory(directory)
+                .retryPolicy(retryPolicy)
+                .minDeferDuration(Duration.ofMillis(10))
+                .handler(task -> attempts.incrementAndGet())
+                .build()) {
+            Assert.assertFalse(queue.execute("a"));
+            Thread.sleep(100);
+            Assert.assertEquals(0, attempts.get());
+            Assert.assertEquals(1, queue.size());
+            Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+            circuitBreaker.reset();
+            waitUntilEmpty(queue);
+            Assert.assertEquals(1, attempts.get());
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * 执行时抛出Error的任务按重试策略再执行，不会一直停留在队列中
+     */
+    @Test
+    public void errorRetriesTask() throws Exception {
+        Path directory = Files.createTempDirectory("deferred");
+        CircuitBreaker circuitBreaker = CircuitBreaker.builder()
+                .slidingWindowSize(1)
+                .minimumNumberOfCalls(1)
+                .waitDurationInOpenState(Duration.ZERO)
+                .permittedCallsInHalfOpenState(1)
+                .build();
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxRetries(1)
+                .circuitBreaker(circuitBreaker)
+                .build();
+
+        AtomicInteger attempts = new AtomicInteger();
+        try (DeferredRetryQueue<String> queue = DeferredRetryQueue.<String>builder()
+                .directory(directory)
+                .retryPolicy(retryPolicy)
+                .minDeferDuration(Duration.ofMillis(10))
+                .handler(task -> {
+                    if (attempts.incrementAndGet() == 1) {
+                        throw new AssertionError("boom");
+                    }
+                })
+                .build()) {
+            queue.submit("a");
+            waitUntilEmpty(queue);
+            Assert.assertEquals(2, attempts.get());
+            Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * 一直抛出Error的任务超过重试次数后包装为ExecutionException交给死信处理
+     */
+    @Test
+    public void errorGoesToDeadLetter() throws Exception {
+        Path directory = Files.createTempDirectory("deferred");
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxRetries(2)
+                .delayDuration(Duration.ofMillis(10))
+                .build();
+
+        AtomicInteger attempts = new AtomicInteger();
+        List<Exception> causes = new CopyOnWriteArrayList<>();
+        try (DeferredRetryQueue<String> queue = DeferredRetryQueue.<String>builder()
+                .directory(directory)
+                .retryPolicy(retryPolicy)
+                .minDeferDuration(Duration.ofMillis(10))
+                .deadLetterSink((task, cause) -> causes.add(cause))
+                .handler(task -> {
+                    attempts.incrementAndGet();
+                    throw new AssertionError("boom");
+                })
+                .build()) {
+            queue.submit("a");
+            waitUntilEmpty(queue);
+            Assert.assertEquals(3, attempts.get());
+            Assert.assertEquals(1, causes.size());
+            Assert.assertTrue(causes.get(0) instanceof ExecutionException);
+            Assert.assertTrue(causes.get(0).getCause() instanceof AssertionError);
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * 默认的序列化方式只读写允许的类，文件中不允许的类不会被反序列化
+     */
+    @Test
+    public void rejectDisallowedClasses() throws Exception {
+        Path directory = Files.createTempDirectory("deferred");
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxRetries(1)
+                .delayDuration(Duration.ofMillis(200))
+                .build();
+
+        try (DeferredRetryQueue<Date> queue = DeferredRetryQueue.<Date>builder()
+                .directory(directory)
+                .retryPolicy(retryPolicy)
+                .handler(task -> {
+                })
+                .build()) {
+            try {
+                queue.submit(new Date());
+                Assert.fail();
+            } catch (UncheckedIOException e) {
+                Assert.assertTrue(e.getCause() instanceof InvalidClassException);
+            }
+            Assert.assertEquals(0, queue.size());
+        }
+
+        try (DeferredRetryQueue<Date> queue = DeferredRetryQueue.<Date>builder()
+                .directory(directory)
+                .retryPolicy(retryPolicy)
+                .allowedClasses(Date.class)
+                .handler(task -> {
+                    throw new IllegalStateException("down");
+                })
+                .build()) {
+            Assert.assertFalse(queue.execute(new Date()));
+        }
+
+        List<Date> handled = new CopyOnWriteArrayList<>();
+        try (DeferredRetryQueue<Date> queue = DeferredRetryQueue.<Date>builder()
+                .directory(directory)
+                .retryPolicy(retryPolicy)
+                .minDeferDuration(Duration.ofMillis(10))
+                .handler(handled::add)
+                .build()) {
+            Assert.assertEquals(1, queue.size());
+            waitUntilEmpty(queue);
+            Assert.assertTrue(handled.isEmpty());
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    private static void waitUntilEmpty(DeferredRetryQueue<?> queue) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (queue.size() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(0, queue.size());
+    }
+
+    private static void deleteDirectory(Path directory) {
+        File[] files = directory.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.toFile().delete();
+    }
+}
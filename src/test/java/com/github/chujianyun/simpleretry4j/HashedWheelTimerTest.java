@@ -0,0 +1,138 @@
+package com.github.chujianyun.simpleretry4j;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 哈希时间轮定时器测试
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-19 04:00
+ */
+public class HashedWheelTimerTest {
+
+    /**
+     * 任务不会提前执行，超过一圈的任务按剩余圈数执行
+     */
+    @Test
+    public void neverFiresEarly() throws Exception {
+        HashedWheelTimer timer = HashedWheelTimer.builder()
+                .tickDuration(Duration.ofMillis(5))
+                .ticksPerWheel(4)
+                .build();
+        try {
+            long[] delays = {0, 3, 17, 45, 90};
+            CountDownLatch done = new CountDownLatch(delays.length);
+            List<Long> early = new ArrayList<>();
+            for (long delay : delays) {
+                long start = System.nanoTime();
+                timer.schedule(() -> {
+                    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    if (elapsedMillis < delay) {
+                        synchronized (early) {
+                            early.add(delay);
+                        }
+                    }
+                    done.countDown();
+                }, delay, TimeUnit.MILLISECONDS);
+            }
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(early.isEmpty());
+        } finally {
+            timer.shutdownNow();
+        }
+    }
+
+    /**
+     * 中断取消正在执行的任务后，之后的任务不在中断状态下执行
+     */
+    @Test
+    public void cancelRunningTaskWithInterrupt() throws Exception {
+        HashedWheelTimer timer = HashedWheelTimer.builder().build();
+        try {
+            CountDownLatch running = new CountDownLatch(1);
+            ScheduledFuture<?> blocking = timer.schedule(() -> {
+                running.countDown();
+                // 不清除中断标记的等待
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (!Thread.currentThread().isInterrupted() && System.nanoTime() < deadline) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                }
+            }, 0, TimeUnit.MILLISECONDS);
+            Assert.assertTrue(running.await(5, TimeUnit.SECONDS));
+            Assert.assertTrue(blocking.cancel(true));
+
+            ScheduledFuture<Boolean> next = timer.schedule(() -> Thread.currentThread().isInterrupted(), 10, TimeUnit.MILLISECONDS);
+            Assert.assertFalse(next.get(5, TimeUnit.SECONDS));
+        } finally {
+            timer.shutdownNow();
+        }
+    }
+
+    /**
+     * 取消的任务不执行，并从槽中移除
+     */
+    @Test
+    public void cancel() throws Exception {
+        HashedWheelTimer timer = HashedWheelTimer.builder().build();
+        try {
+            AtomicInteger fired = new AtomicInteger();
+            List<ScheduledFuture<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 10_000; i++) {
+                futures.add(timer.schedule(fired::incrementAndGet, 500, TimeUnit.MILLISECONDS));
+            }
+            for (int i = 0; i < futures.size(); i += 2) {
+                Assert.assertTrue(futures.get(i).cancel(false));
+            }
+
+            ScheduledFuture<String> last = timer.schedule(() -> "done", 600, TimeUnit.MILLISECONDS);
+            Assert.assertEquals("done", last.get(5, TimeUnit.SECONDS));
+            Assert.assertEquals(5_000, fired.get());
+            Assert.assertEquals(0, timer.pendingTimeouts());
+        } finally {
+            timer.shutdownNow();
+        }
+    }
+
+    /**
+     * 固定频率的任务重复执行，关闭后不再继续
+     */
+    @Test
+    public void fixedRateAndShutdown() throws Exception {
+        HashedWheelTimer timer = HashedWheelTimer.builder().build();
+        CountDownLatch ticks = new CountDownLatch(5);
+        timer.scheduleAtFixedRate(ticks::countDown, 0, 5, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(ticks.await(5, TimeUnit.SECONDS));
+
+        // 周期小于刻度时每个刻度执行一次
+        CountDownLatch subTick = new CountDownLatch(50);
+        ScheduledFuture<?> subTickTask = timer.scheduleAtFixedRate(subTick::countDown, 0, 100, TimeUnit.MICROSECONDS);
+        Assert.assertTrue(subTick.await(2, TimeUnit.SECONDS));
+        subTickTask.cancel(false);
+
+        // 执行时间超过周期时下一个刻度立即再执行
+        CountDownLatch late = new CountDownLatch(20);
+        ScheduledFuture<?> lateTask = timer.scheduleAtFixedRate(() -> {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(3));
+            late.countDown();
+        }, 0, 1, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(late.await(2, TimeUnit.SECONDS));
+        lateTask.cancel(false);
+
+        ScheduledFuture<?> oneShot = timer.schedule(() -> {
+        }, 20, TimeUnit.MILLISECONDS);
+        timer.shutdown();
+        Assert.assertTrue(timer.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertTrue(oneShot.isDone());
+        Assert.assertFalse(oneShot.isCancelled());
+    }
+}
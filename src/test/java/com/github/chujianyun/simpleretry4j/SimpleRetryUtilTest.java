@@ -1,6 +1,7 @@
 package com.github.chujianyun.simpleretry4j;
 
 import com.github.chujianyun.simpleretry4j.exception.BusinessException;
+import com.github.chujianyun.simpleretry4j.exception.ResultRejectedException;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.Assert;
 import org.junit.Test;
@@ -9,13 +10,21 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.powermock.modules.junit4.PowerMockRunner;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -164,5 +173,359 @@ public class SimpleRetryUtilTest {
         SimpleRetryUtil.executeWithRetry(consumer, data, retryPolicy);
     }
 
+    /**
+     * 异步重试，前两次异常第三次成功
+     */
+    @Test
+    public void executeWithRetryAsync() throws Exception {
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxRetries(3)
+                .delayDuration(Duration.ofMillis(10))
+                .build();
+
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<Integer> future = SimpleRetryUtil.executeWithRetryAsync(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                CompletableFuture<Integer> failed = new CompletableFuture<>();
+                failed.completeExceptionally(new BusinessException());
+                return failed;
+            }
+            return CompletableFuture.completedFuture(attempts.get());
+        }, retryPolicy);
+
+        Assert.assertEquals(Integer.valueOf(3), future.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(3, attempts.get());
+    }
+
+    /**
+     * 异步重试遇到终止异常不再重试
+     */
+    @Test
+    public void executeWithRetryAsyncAbortException() throws Exception {
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxRetries(3)
+                .abortException(IllegalArgumentException.class)
+                .build();
+
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<Integer> future = SimpleRetryUtil.executeWithRetryAsync(() -> {
+            attempts.incrementAndGet();
+            throw new IllegalArgumentException();
+        }, retryPolicy);
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        Assert.assertEquals(1, attempts.get());
+    }
+
+    /**
+     * 异步重试超过最大次数返回最后一次的结果
+     */
+    @Test
+    public void executeWithRetryAsyncAbortCondition() throws Exception {
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxRetries(2)
+                .abortCondition(Objects::nonNull)
+                .build();
+
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<Integer> future = SimpleRetryUtil.executeWithRetryAsync(() -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        }, retryPolicy);
+
+        Assert.assertNull(future.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(3, attempts.get());
+    }
+
+    /**
+     * 响应式重试，上游发出两个元素后出错，重新订阅后只请求下游还未满足的数量
+     */
+    @Test
+    public void retryPublisher() throws Exception {
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxRetries(3)
+                .delayDuration(Duration.ofMillis(10))
+                .build();
+
+        // 每次订阅从上次发出的元素之后继续，第一次订阅在第三个元素时出错
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger subscriptions = new AtomicInteger();
+        Publisher<Integer> source = subscriber -> {
+            boolean fail = subscriptions.incrementAndGet() == 1;
+            subscriber.onSubscribe(new Subscription() {
+                private boolean done;
+
+                @Override
+                public void request(long n) {
+                    for (long i = 0; i < n && !done; i++) {
+                        int value = next.incrementAndGet();
+                        if (fail && value == 3) {
+                            done = true;
+                            next.decrementAndGet();
+                            subscriber.onError(new BusinessException());
+                            return;
+                        }
+                        done = value == 5;
+                        subscriber.onNext(value);
+                        if (done) {
+                            subscriber.onComplete();
+                        }
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    done = true;
+                }
+            });
+        };
+
+        CompletableFuture<List<Integer>> result = new CompletableFuture<>();
+        RetryPublisher.of(source, retryPolicy).subscribe(new Subscriber<Integer>() {
+            private final List<Integer> items = new ArrayList<>();
+
+            private Subscription subscription;
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(Integer item) {
+                items.add(item);
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                result.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                result.complete(items);
+            }
+        });
+
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5), result.get(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, subscriptions.get());
+    }
+
+    /**
+     * 通过toBuilder派生的策略按新的最大重试次数执行，原策略不受影响
+     */
+    @Test
+    public void derivePolicyWithToBuilder() throws Exception {
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxRetries(3)
+                .build();
+
+        AtomicInteger attempts = new AtomicInteger();
+        Callable<Integer> failing = () -> {
+            attempts.incrementAndGet();
+            throw new BusinessException();
+        };
+        try {
+            SimpleRetryUtil.executeWithRetry(failing, retryPolicy);
+        } catch (BusinessException ignored) {
+        }
+        Assert.assertEquals(4, attempts.get());
+
+        RetryPolicy derived = retryPolicy.toBuilder().maxRetries(0).build();
+        attempts.set(0);
+        try {
+            SimpleRetryUtil.executeWithRetry(failing, derived);
+        } catch (BusinessException ignored) {
+        }
+        Assert.assertEquals(1, attempts.get());
+        Assert.assertEquals(Integer.valueOf(3), retryPolicy.getMaxRetries());
+        Assert.assertEquals(retryPolicy.getAbortConditions(), derived.getAbortConditions());
+    }
+
+    /**
+     * 构建后的策略不可修改
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void retryPolicyImmutable() {
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .abortException(BusinessException.class)
+                .build();
+        retryPolicy.getAbortExceptions().add(IllegalStateException.class);
+    }
+
+    /**
+     * 单次尝试超时后中断并重试
+     */
+    @Test
+    public void executeWithAttemptTimeout() throws Exception {
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxRetries(2)
+                .attemptTimeout(Duration.ofMillis(50))
+                .build();
+
+        AtomicInteger attempts = new AtomicInteger();
+        Integer result = SimpleRetryUtil.executeWithRetry(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                // 第一次挂住
+                Thread.sleep(10_000);
+            }
+            return attempts.get();
+        }, retryPolicy);
+
+        Assert.assertEquals(Integer.valueOf(2), result);
+    }
+
+    /**
+     * 无限重试时总时长到期后抛出最后一次的异常
+     */
+    @Test(timeout = 5000)
+    public void executeWithMaxDuration() throws Exception {
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .delayDuration(Duration.ofMillis(40))
+                .maxDuration(Duration.ofMillis(200))
+                .build();
+
+        AtomicInteger attempts = new AtomicInteger();
+        long start = System.nanoTime();
+        try {
+            SimpleRetryUtil.executeWithRetry(() -> {
+                attempts.incrementAndGet();
+                throw new BusinessException();
+            }, retryPolicy);
+            Assert.fail();
+        } catch (BusinessException e) {
+            Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+            Assert.assertTrue(attempts.get() <= 6);
+        }
+    }
+
+    /**
+     * 异步重试的单次尝试超时，挂住的尝试被放弃
+     */
+    @Test
+    public void executeWithRetryAsyncAttemptTimeout() throws Exception {
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxRetries(1)
+                .attemptTimeout(Duration.ofMillis(50))
+                .build();
+
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<Integer> future = SimpleRetryUtil.executeWithRetryAsync(() -> {
+            attempts.incrementAndGet();
+            // 永远不会完成
+            return new CompletableFuture<>();
+        }, retryPolicy);
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        Assert.assertEquals(2, attempts.get());
+    }
+
+    /**
+     * 设置可重试的异常列表后，其余异常直接抛出
+     */
+    @Test
+    public void executeWithRetryExceptions() throws Exception {
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxRetries(3)
+                .retryException(TimeoutException.class)
+                .build();
+
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            SimpleRetryUtil.executeWithRetry(() -> {
+                if (attempts.incrementAndGet() == 1) {
+                    throw new TimeoutException();
+                }
+                throw new IllegalStateException();
+            }, retryPolicy);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(2, attempts.get());
+        }
+    }
+
+    /**
+     * 沿原因链匹配不重试的异常
+     */
+    @Test
+    public void executeWithAbortExceptionCause() throws Exception {
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxRetries(3)
+                .abortException(BusinessException.class)
+                .matchExceptionCauses(true)
+                .build();
+
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            SimpleRetryUtil.executeWithRetry(() -> {
+                attempts.incrementAndGet();
+                throw new ExecutionException(new BusinessException());
+            }, retryPolicy);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertEquals(1, attempts.get());
+        }
+
+        ExceptionClassifier classifier = new ExceptionClassifier(retryPolicy.getAbortExceptions(), null, false);
+        Assert.assertFalse(classifier.isAbort(new ExecutionException(new BusinessException())));
+        Assert.assertTrue(classifier.isAbort(new BusinessException()));
+    }
+
+    /**
+     * 按状态码分类：5xx和null重试，4xx失败且不重试，其余直接返回
+     */
+    @Test
+    public void executeWithResultClassifier() throws Exception {
+        ResultClassifier<Integer> classifier = ResultClassifier.<Integer>builder()
+                .whenInt(Integer::intValue, code -> code >= 500, ResultDecision.RETRY)
+                .whenInt(Integer::intValue, code -> code >= 400, ResultDecision.FAIL)
+                .onNull(ResultDecision.RETRY)
+                .build();
+        Assert.assertEquals(ResultDecision.ABORT, classifier.classify(200));
+        Assert.assertEquals(ResultDecision.RETRY, classifier.classify(503));
+        Assert.assertEquals(ResultDecision.FAIL, classifier.classify(404));
+        Assert.assertEquals(ResultDecision.RETRY, classifier.classify(null));
+
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxRetries(3)
+                .resultClassifier(classifier)
+                .build();
+
+        Mockito.doReturn(null).doReturn(503).doReturn(200).when(callable).call();
+        Assert.assertEquals(Integer.valueOf(200), SimpleRetryUtil.executeWithRetry(callable, retryPolicy));
+
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            SimpleRetryUtil.executeWithRetry(() -> {
+                attempts.incrementAndGet();
+                return 404;
+            }, retryPolicy);
+            Assert.fail();
+        } catch (ResultRejectedException e) {
+            Assert.assertEquals(404, e.getResult());
+            Assert.assertEquals(1, attempts.get());
+        }
+
+        CompletableFuture<Integer> future = SimpleRetryUtil.executeWithRetryAsync(
+                () -> CompletableFuture.completedFuture(400), retryPolicy);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof ResultRejectedException);
+        }
+    }
 
-}
\ No newline at end of file
+}
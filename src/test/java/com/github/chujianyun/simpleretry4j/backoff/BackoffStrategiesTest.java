@@ -0,0 +1,94 @@
+package com.github.chujianyun.simpleretry4j.backoff;
+
+import com.github.chujianyun.simpleretry4j.RetryPolicy;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 退避策略测试
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 10:40
+ */
+public class BackoffStrategiesTest {
+
+    /**
+     * 线性和指数增长
+     */
+    @Test
+    public void linearAndExponential() {
+        BackoffStrategy linear = BackoffStrategies.linear(Duration.ofMillis(100), Duration.ofMillis(50));
+        Assert.assertEquals(100, linear.delayMillis(1, 0));
+        Assert.assertEquals(200, linear.delayMillis(3, 0));
+
+        BackoffStrategy exponential = BackoffStrategies.exponential(Duration.ofMillis(100), 2);
+        Assert.assertEquals(100, exponential.delayMillis(1, 0));
+        Assert.assertEquals(800, exponential.delayMillis(4, 0));
+        Assert.assertEquals(Long.MAX_VALUE, exponential.delayMillis(100, 0));
+    }
+
+    /**
+     * 指定种子后每次重试过程的抖动序列都是确定的，不受其他重试过程交替调用的影响，且在范围内
+     */
+    @Test
+    public void seededJitter() {
+        BackoffStrategy base = BackoffStrategies.fixed(Duration.ofMillis(1000));
+        BackoffStrategy jitter1 = BackoffStrategies.equalJitter(base, 42L);
+        BackoffStrategy jitter2 = BackoffStrategies.equalJitter(base, 42L);
+        for (int i = 1; i <= 100; i++) {
+            long delay = jitter1.delayMillis(i, 0);
+            Assert.assertEquals(delay, jitter2.delayMillis(i, 0));
+            Assert.assertEquals(delay, jitter1.delayMillis(i, 0));
+            Assert.assertTrue(delay >= 500 && delay <= 1000);
+        }
+
+        BackoffStrategy full = BackoffStrategies.fullJitter(base, 7L);
+        for (int i = 1; i <= 100; i++) {
+            long delay = full.delayMillis(i, 0);
+            Assert.assertTrue(delay >= 0 && delay <= 1000);
+        }
+    }
+
+    /**
+     * 去相关抖动不低于基础延时且不超过最大延时
+     */
+    @Test
+    public void decorrelatedJitter() {
+        BackoffStrategy strategy = BackoffStrategies.decorrelatedJitter(Duration.ofMillis(10), Duration.ofMillis(300), 1L);
+        long lastDelay = 0;
+        for (int i = 1; i <= 100; i++) {
+            lastDelay = strategy.delayMillis(i, lastDelay);
+            Assert.assertTrue(lastDelay >= 10 && lastDelay <= 300);
+        }
+
+        // 第一次重试的延时在 [base, 3 * base] 之间且因种子而不同
+        Set<Long> firstDelays = new HashSet<>();
+        for (long seed = 0; seed < 50; seed++) {
+            long delay = BackoffStrategies.decorrelatedJitter(Duration.ofMillis(100), Duration.ofSeconds(10), seed)
+                    .delayMillis(1, 0);
+            Assert.assertTrue(delay >= 100 && delay <= 300);
+            firstDelays.add(delay);
+        }
+        Assert.assertTrue(firstDelays.size() > 10);
+    }
+
+    /**
+     * 重试策略的最大延时限制
+     */
+    @Test
+    public void maxDelay() {
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .backoffStrategy(BackoffStrategies.exponential(Duration.ofMillis(100), 3))
+                .maxDelay(Duration.ofSeconds(1))
+                .build();
+        Assert.assertEquals(300, retryPolicy.nextDelayMillis(2, 100));
+        Assert.assertEquals(1000, retryPolicy.nextDelayMillis(5, 0));
+
+        RetryPolicy fixed = RetryPolicy.builder().delayDuration(Duration.ofMillis(5)).build();
+        Assert.assertEquals(5, fixed.nextDelayMillis(10, 5));
+    }
+}
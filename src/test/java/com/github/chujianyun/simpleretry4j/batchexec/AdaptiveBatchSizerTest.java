@@ -0,0 +1,57 @@
+package com.github.chujianyun.simpleretry4j.batchexec;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 自适应批次大小测试
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 20:05
+ */
+public class AdaptiveBatchSizerTest {
+
+    /**
+     * 加性增、乘性减，保持在最小和最大数量之间
+     */
+    @Test
+    public void additiveIncreaseMultiplicativeDecrease() {
+        AdaptiveBatchSizer sizer = AdaptiveBatchSizer.builder()
+                .minBatchNum(10)
+                .maxBatchNum(100)
+                .initialBatchNum(40)
+                .increment(20)
+                .targetLatency(Duration.ofMillis(100))
+                .build();
+        long fast = TimeUnit.MILLISECONDS.toNanos(50);
+        long slow = TimeUnit.MILLISECONDS.toNanos(200);
+
+        sizer.onBatchComplete(40, fast, false);
+        Assert.assertEquals(60, sizer.getBatchNum());
+
+        // 不满一批时不增加
+        sizer.onBatchComplete(5, fast, false);
+        Assert.assertEquals(60, sizer.getBatchNum());
+
+        sizer.onBatchComplete(60, fast, false);
+        sizer.onBatchComplete(80, fast, false);
+        sizer.onBatchComplete(100, fast, false);
+        Assert.assertEquals(100, sizer.getBatchNum());
+
+        sizer.onBatchComplete(100, slow, false);
+        Assert.assertEquals(50, sizer.getBatchNum());
+
+        sizer.onBatchComplete(50, fast, true);
+        sizer.onBatchComplete(25, fast, true);
+        sizer.onBatchComplete(12, fast, true);
+        Assert.assertEquals(10, sizer.getBatchNum());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void targetLatencyRequired() {
+        AdaptiveBatchSizer.builder().minBatchNum(1).build();
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.chujianyun.simpleretry4j.batchexec;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 检查点测试
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-19 02:00
+ */
+public class BatchCheckpointTest {
+
+    /**
+     * 乱序完成的批次在前面的批次完成后并入水位线，重新打开后恢复
+     */
+    @Test
+    public void recordAndReload() throws Exception {
+        Path path = Files.createTempFile("checkpoint", ".bin");
+        try {
+            try (BatchCheckpoint checkpoint = BatchCheckpoint.open(path, 2)) {
+                checkpoint.record(10, 20, false);
+                Assert.assertEquals(0, checkpoint.getWatermark());
+                Assert.assertTrue(checkpoint.isCompleted(10, 20));
+
+                checkpoint.record(0, 10, false);
+                checkpoint.record(30, 40, true);
+                Assert.assertEquals(20, checkpoint.getWatermark());
+                Assert.assertFalse(checkpoint.isCompleted(20, 30));
+                Assert.assertTrue(checkpoint.isCompleted(30, 40));
+            }
+
+            try (BatchCheckpoint checkpoint = BatchCheckpoint.open(path)) {
+                Assert.assertEquals(20, checkpoint.getWatermark());
+                Assert.assertTrue(checkpoint.isCompleted(30, 40));
+                Assert.assertEquals(1, checkpoint.getFailedRanges().size());
+                Assert.assertArrayEquals(new long[]{30, 40}, checkpoint.getFailedRanges().get(0));
+
+                checkpoint.record(20, 30, false);
+                Assert.assertEquals(40, checkpoint.getWatermark());
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * 写入一半时崩溃留下的不完整记录在打开时被丢弃
+     */
+    @Test
+    public void ignoreTornRecord() throws Exception {
+        Path path = Files.createTempFile("checkpoint", ".bin");
+        try {
+            try (BatchCheckpoint checkpoint = BatchCheckpoint.open(path)) {
+                checkpoint.record(0, 100, false);
+            }
+            Files.write(path, new byte[]{1, 0, 0, 0, 0}, StandardOpenOption.APPEND);
+
+            try (BatchCheckpoint checkpoint = BatchCheckpoint.open(path)) {
+                Assert.assertEquals(100, checkpoint.getWatermark());
+                checkpoint.record(100, 200, false);
+            }
+            try (BatchCheckpoint checkpoint = BatchCheckpoint.open(path)) {
+                Assert.assertEquals(200, checkpoint.getWatermark());
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * 记录较多时打开时压缩为水位线
+     */
+    @Test
+    public void compactOnOpen() throws Exception {
+        Path path = Files.createTempFile("checkpoint", ".bin");
+        try {
+            try (BatchCheckpoint checkpoint = BatchCheckpoint.open(path)) {
+                for (int i = 0; i < 100; i++) {
+                    checkpoint.record(i * 10L, i * 10L + 10, false);
+                }
+            }
+            long sizeBefore = Files.size(path);
+
+            try (BatchCheckpoint checkpoint = BatchCheckpoint.open(path)) {
+                Assert.assertEquals(1000, checkpoint.getWatermark());
+                checkpoint.record(1000, 1010, false);
+            }
+            Assert.assertTrue(Files.size(path) < sizeBefore);
+
+            try (BatchCheckpoint checkpoint = BatchCheckpoint.open(path)) {
+                Assert.assertEquals(1010, checkpoint.getWatermark());
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
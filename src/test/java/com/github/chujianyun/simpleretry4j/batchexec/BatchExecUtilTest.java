@@ -2,6 +2,9 @@ package com.github.chujianyun.simpleretry4j.batchexec;
 
 
 import com.github.chujianyun.simpleretry4j.RetryPolicy;
+import com.github.chujianyun.simpleretry4j.VirtualThreads;
+import com.github.chujianyun.simpleretry4j.metrics.RetryMetrics;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -9,11 +12,29 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.mockito.ArgumentMatchers.any;
 
@@ -117,4 +138,526 @@ public class BatchExecUtilTest {
         BatchExecUtil.batchExec(consumer, data, batchExePolicy);
     }
 
-}
\ No newline at end of file
+    /**
+     * 并行执行，所有数据都被消费且同时执行的批次不超过上限
+     */
+    @Test
+    public void batchExecParallel() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Integer> bigData = new ArrayList<>();
+            for (int i = 0; i < 1001; i++) {
+                bigData.add(i);
+            }
+
+            AtomicInteger sum = new AtomicInteger();
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+            BatchExePolicy batchExePolicy = BatchExePolicy.builder()
+                    .eachBatchNum(10)
+                    .failPolicy(FailPolicy.ABORT_AND_THROW)
+                    .executor(executor)
+                    .maxInFlight(3)
+                    .completionOrder(CompletionOrder.ORDERED)
+                    .build();
+
+            BatchExecUtil.batchExec(batch -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                batch.forEach(sum::addAndGet);
+                running.decrementAndGet();
+            }, bigData, batchExePolicy);
+
+            Assert.assertEquals(1001 * 1000 / 2, sum.get());
+            Assert.assertTrue(maxRunning.get() <= 3);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 并行执行时批次抛出的Error在调用线程上抛出
+     */
+    @Test(expected = LinkageError.class)
+    public void batchExecParallelError() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Integer> bigData = new ArrayList<>();
+            for (int i = 0; i < 1001; i++) {
+                bigData.add(i);
+            }
+            BatchExePolicy batchExePolicy = BatchExePolicy.builder()
+                    .eachBatchNum(10)
+                    .failPolicy(FailPolicy.ABORT_AND_THROW)
+                    .executor(executor)
+                    .maxInFlight(3)
+                    .build();
+
+            BatchExecUtil.batchExec(batch -> {
+                if (batch.contains(500)) {
+                    throw new LinkageError("boom");
+                }
+            }, bigData, batchExePolicy);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 每个批次一个线程（支持时为虚拟线程）并行执行
+     */
+    @Test
+    public void batchExecVirtualThreads() throws Exception {
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("batch-exec-test-");
+        try {
+            List<Integer> bigData = new ArrayList<>();
+            for (int i = 0; i < 10000; i++) {
+                bigData.add(i);
+            }
+
+            AtomicInteger sum = new AtomicInteger();
+            BatchExePolicy batchExePolicy = BatchExePolicy.builder()
+                    .eachBatchNum(10)
+                    .failPolicy(FailPolicy.ABORT_AND_THROW)
+                    .executor(executor)
+                    .maxInFlight(1000)
+                    .build();
+
+            BatchExecResult result = BatchExecUtil.batchExecWithResult(batch -> {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                batch.forEach(sum::addAndGet);
+            }, bigData, batchExePolicy);
+
+            Assert.assertEquals(10000 * 9999 / 2, sum.get());
+            Assert.assertEquals(1000, result.getBatchCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 并行批量执行，批次完成顺序打乱时结果仍然与输入的顺序一致
+     */
+    @Test
+    public void batchMapParallel() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Integer> bigData = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                bigData.add(i);
+            }
+
+            BatchExePolicy batchExePolicy = BatchExePolicy.builder()
+                    .eachBatchNum(7)
+                    .failPolicy(FailPolicy.ABORT_AND_THROW)
+                    .executor(executor)
+                    .maxInFlight(8)
+                    .build();
+
+            List<String> result = BatchExecUtil.batchMap(batch -> {
+                try {
+                    Thread.sleep(batch.get(0) % 3);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                List<String> values = new ArrayList<>();
+                batch.forEach(item -> values.add("v" + item));
+                return values;
+            }, bigData, batchExePolicy);
+
+            Assert.assertEquals(1000, result.size());
+            for (int i = 0; i < 1000; i++) {
+                Assert.assertEquals("v" + i, result.get(i));
+            }
+
+            // 每个批次返回一个值，按批次顺序求和
+            long sum = BatchExecUtil.batchMap(batch -> batch.stream().mapToLong(Integer::longValue).sum(), bigData,
+                    batchExePolicy, Collectors.summingLong(Long::longValue));
+            Assert.assertEquals(1000 * 999 / 2, sum);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 批量查询，合并以输入为键的结果，失败而被忽略的批次没有结果
+     */
+    @Test
+    public void batchFetch() throws Exception {
+        BatchExePolicy batchExePolicy = BatchExePolicy.builder()
+                .eachBatchNum(3)
+                .failPolicy(FailPolicy.IGNORE)
+                .build();
+
+        Map<Integer, String> result = BatchExecUtil.batchFetch(batch -> {
+            if (batch.contains(4)) {
+                throw new IllegalStateException("test");
+            }
+            Map<Integer, String> values = new HashMap<>();
+            batch.forEach(item -> values.put(item, "v" + item));
+            return values;
+        }, Arrays.asList(1, 2, 3, 4, 5, 6, 7), batchExePolicy);
+
+        Assert.assertEquals(Arrays.asList(1, 2, 3, 7), new ArrayList<>(result.keySet()));
+        Assert.assertEquals("v7", result.get(7));
+    }
+
+    /**
+     * 第一次执行中途异常终止，重新执行时从检查点继续，只执行剩余的批次
+     */
+    @Test
+    public void batchExecResumeFromCheckpoint() throws Exception {
+        List<Integer> bigData = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            bigData.add(i);
+        }
+        Path path = Files.createTempFile("checkpoint", ".bin");
+        try {
+            try (BatchCheckpoint checkpoint = BatchCheckpoint.open(path)) {
+                BatchExePolicy batchExePolicy = BatchExePolicy.builder()
+                        .eachBatchNum(10)
+                        .failPolicy(FailPolicy.ABORT_AND_THROW)
+                        .checkpoint(checkpoint)
+                        .build();
+                try {
+                    BatchExecUtil.batchExec(batch -> {
+                        if (batch.contains(55)) {
+                            throw new IllegalStateException("crash");
+                        }
+                    }, bigData, batchExePolicy);
+                    Assert.fail();
+                } catch (IllegalStateException e) {
+                    Assert.assertEquals(50, checkpoint.getWatermark());
+                }
+            }
+
+            try (BatchCheckpoint checkpoint = BatchCheckpoint.open(path)) {
+                BatchExePolicy batchExePolicy = BatchExePolicy.builder()
+                        .eachBatchNum(10)
+                        .failPolicy(FailPolicy.ABORT_AND_THROW)
+                        .checkpoint(checkpoint)
+                        .build();
+                List<Integer> executed = new ArrayList<>();
+                BatchExecResult result = BatchExecUtil.batchExecWithResult(executed::addAll, bigData.iterator(), batchExePolicy);
+
+                Assert.assertEquals(50, executed.size());
+                Assert.assertEquals(Integer.valueOf(50), executed.get(0));
+                Assert.assertEquals(5, result.getBatchCount());
+                Assert.assertEquals(100, checkpoint.getWatermark());
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * 响应式分批，下游每次请求一个批次，最后一个批次不足每批数量
+     */
+    @Test
+    public void batchPublisher() throws Exception {
+        BatchExePolicy batchExePolicy = BatchExePolicy.builder()
+                .eachBatchNum(10)
+                .build();
+
+        AtomicInteger requestedItems = new AtomicInteger();
+        Publisher<Integer> source = subscriber -> subscriber.onSubscribe(new Subscription() {
+            private int next;
+
+            @Override
+            public void request(long n) {
+                requestedItems.addAndGet((int) n);
+                for (long i = 0; i < n && next < 25; i++) {
+                    subscriber.onNext(++next);
+                    if (next == 25) {
+                        subscriber.onComplete();
+                    }
+                }
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+
+        CompletableFuture<List<List<Integer>>> result = collect(BatchPublisher.of(source, batchExePolicy));
+        List<List<Integer>> batches = result.get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(3, batches.size());
+        Assert.assertEquals(10, batches.get(0).size());
+        Assert.assertEquals(Arrays.asList(21, 22, 23, 24, 25), batches.get(2));
+        // 每次只请求填满一个批次的元素
+        Assert.assertEquals(30, requestedItems.get());
+    }
+
+    /**
+     * 响应式分批，上游不再发出元素时等待超时后发出不足一批的批次
+     */
+    @Test
+    public void batchPublisherLinger() throws Exception {
+        BatchExePolicy batchExePolicy = BatchExePolicy.builder()
+                .eachBatchNum(10)
+                .lingerDuration(Duration.ofMillis(20))
+                .build();
+
+        Publisher<Integer> source = subscriber -> subscriber.onSubscribe(new Subscription() {
+            private boolean emitted;
+
+            @Override
+            public void request(long n) {
+                if (!emitted) {
+                    emitted = true;
+                    subscriber.onNext(1);
+                    subscriber.onNext(2);
+                    subscriber.onNext(3);
+                }
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+
+        CompletableFuture<List<Integer>> first = new CompletableFuture<>();
+        BatchPublisher.of(source, batchExePolicy).subscribe(new Subscriber<List<Integer>>() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(List<Integer> batch) {
+                first.complete(batch);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                first.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        Assert.assertEquals(Arrays.asList(1, 2, 3), first.get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * 每次请求一个批次，收集所有批次
+     */
+    private static <T> CompletableFuture<List<T>> collect(Publisher<T> publisher) {
+        CompletableFuture<List<T>> result = new CompletableFuture<>();
+        publisher.subscribe(new Subscriber<T>() {
+            private final List<T> items = new ArrayList<>();
+
+            private Subscription subscription;
+
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(T item) {
+                items.add(item);
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                result.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                result.complete(items);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 并行执行时某个批次异常，终止后续批次并抛出该异常
+     */
+    @Test
+    public void batchExecParallelThrow() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Integer> bigData = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                bigData.add(i);
+            }
+
+            AtomicInteger batches = new AtomicInteger();
+            BatchExePolicy batchExePolicy = BatchExePolicy.builder()
+                    .eachBatchNum(10)
+                    .failPolicy(FailPolicy.ABORT_AND_THROW)
+                    .executor(executor)
+                    .maxInFlight(2)
+                    .build();
+
+            try {
+                BatchExecUtil.batchExec(batch -> {
+                    batches.incrementAndGet();
+                    if (batch.contains(55)) {
+                        throw new IllegalStateException("test");
+                    }
+                }, bigData, batchExePolicy);
+                Assert.fail();
+            } catch (IllegalStateException e) {
+                Assert.assertEquals("test", e.getMessage());
+            }
+            Assert.assertTrue(batches.get() < 100);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 流式执行，复用缓冲区时每个批次是同一个列表，最后一个批次不足每批数量
+     */
+    @Test
+    public void batchExecStream() throws Exception {
+        BatchExePolicy batchExePolicy = BatchExePolicy.builder()
+                .eachBatchNum(100)
+                .failPolicy(FailPolicy.ABORT_AND_THROW)
+                .reuseBatchBuffer(true)
+                .build();
+
+        AtomicInteger count = new AtomicInteger();
+        Set<List<Integer>> buffers = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Integer> sizes = new ArrayList<>();
+        BatchExecUtil.batchExec(batch -> {
+            buffers.add(batch);
+            sizes.add(batch.size());
+            count.addAndGet(batch.size());
+        }, Stream.iterate(0, i -> i + 1).limit(1050), batchExePolicy);
+
+        Assert.assertEquals(1050, count.get());
+        Assert.assertEquals(1, buffers.size());
+        Assert.assertEquals(11, sizes.size());
+        Assert.assertEquals(Integer.valueOf(50), sizes.get(10));
+    }
+
+    /**
+     * Spliterator数据源的分批执行
+     */
+    @Test
+    public void batchExecSpliterator() throws Exception {
+        BatchExePolicy batchExePolicy = BatchExePolicy.builder()
+                .eachBatchNum(3)
+                .failPolicy(FailPolicy.IGNORE)
+                .build();
+
+        List<List<Integer>> batches = new ArrayList<>();
+        BatchExecUtil.batchExec(batches::add, data.spliterator(), batchExePolicy);
+
+        Assert.assertEquals(2, batches.size());
+        Assert.assertEquals(Arrays.asList(1, 2, 3), batches.get(0));
+        Assert.assertEquals(Collections.singletonList(4), batches.get(1));
+    }
+
+    /**
+     * 批次指标，忽略策略下的异常也计入失败批次
+     */
+    @Test
+    public void batchExecMetrics() throws Exception {
+        RetryMetrics metrics = new RetryMetrics();
+        BatchExePolicy batchExePolicy = BatchExePolicy.builder()
+                .eachBatchNum(3)
+                .failPolicy(FailPolicy.IGNORE)
+                .listener(metrics)
+                .build();
+
+        BatchExecUtil.batchExec(batch -> {
+            if (batch.contains(4)) {
+                throw new IllegalStateException("失败");
+            }
+        }, data, batchExePolicy);
+
+        Assert.assertEquals(2, metrics.getBatches());
+        Assert.assertEquals(4, metrics.getBatchItems());
+        Assert.assertEquals(1, metrics.getBatchFailures());
+        Assert.assertEquals(2, metrics.getBatchLatency().getCount());
+    }
+
+    /**
+     * 自适应批次大小，耗时不超过目标时每批数量逐步增加
+     */
+    @Test
+    public void batchExecAdaptive() throws Exception {
+        BatchExePolicy batchExePolicy = BatchExePolicy.builder()
+                .adaptiveBatchSizer(AdaptiveBatchSizer.builder()
+                        .minBatchNum(2)
+                        .maxBatchNum(6)
+                        .targetLatency(Duration.ofSeconds(1))
+                        .build())
+                .failPolicy(FailPolicy.ABORT_AND_THROW)
+                .build();
+        List<Integer> data = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            data.add(i);
+        }
+
+        List<Integer> sizes = new ArrayList<>();
+        BatchExecUtil.batchExec(batch -> sizes.add(batch.size()), data, batchExePolicy);
+
+        Assert.assertEquals(Arrays.asList(2, 4, 6, 6, 2), sizes);
+    }
+
+    /**
+     * 按每秒元素个数限速
+     */
+    @Test
+    public void batchExecItemsPerSecond() throws Exception {
+        BatchExePolicy batchExePolicy = BatchExePolicy.builder()
+                .eachBatchNum(2)
+                .itemsPerSecond(10)
+                .failPolicy(FailPolicy.ABORT_AND_THROW)
+                .build();
+
+        long start = System.nanoTime();
+        BatchExecUtil.batchExec(consumer, data, batchExePolicy);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // 第一批立即执行，第二批在200毫秒后执行
+        Assert.assertTrue(elapsedMillis >= 180);
+        Mockito.verify(consumer, Mockito.times(2)).accept(any());
+    }
+
+    /**
+     * 二分找出失败的元素交给死信处理，其余元素正常执行
+     */
+    @Test
+    public void batchExecBisect() throws Exception {
+        List<Integer> deadLetters = Collections.synchronizedList(new ArrayList<>());
+        BatchExePolicy batchExePolicy = BatchExePolicy.builder()
+                .eachBatchNum(8)
+                .failPolicy(FailPolicy.BISECT)
+                .deadLetterSink((item, cause) -> deadLetters.add((Integer) item))
+                .build();
+        List<Integer> data = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            data.add(i);
+        }
+
+        List<Integer> succeeded = new ArrayList<>();
+        BatchExecResult result = BatchExecUtil.batchExecWithResult(batch -> {
+            if (batch.contains(3) || batch.contains(13)) {
+                throw new IllegalArgumentException("无效的数据");
+            }
+            succeeded.addAll(batch);
+        }, data, batchExePolicy);
+
+        Assert.assertEquals(3, result.getBatchCount());
+        Assert.assertEquals(18, result.getSucceededCount());
+        Assert.assertEquals(2, result.getFailedCount());
+        Assert.assertEquals(Arrays.asList(3, 13), deadLetters);
+        Assert.assertEquals(18, succeeded.size());
+        Assert.assertFalse(succeeded.contains(3));
+    }
+
+}
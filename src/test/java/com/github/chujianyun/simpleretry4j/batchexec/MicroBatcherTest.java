@@ -0,0 +1,208 @@
+package com.github.chujianyun.simpleretry4j.batchexec;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 微批合并测试
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-19 01:10
+ */
+public class MicroBatcherTest {
+
+    /**
+     * 多个线程并发提交，每个元素得到批次结果中对应的值，批次不超过每批数量
+     */
+    @Test
+    public void concurrentSubmit() throws Exception {
+        BatchExePolicy batchExePolicy = BatchExePolicy.builder()
+                .eachBatchNum(50)
+                .lingerDuration(Duration.ofMillis(5))
+                .build();
+
+        AtomicInteger maxBatchSize = new AtomicInteger();
+        AtomicInteger items = new AtomicInteger();
+        try (MicroBatcher<Integer, Integer> batcher = MicroBatcher.of(batch -> {
+            maxBatchSize.accumulateAndGet(batch.size(), Math::max);
+            items.addAndGet(batch.size());
+            List<Integer> results = new ArrayList<>(batch.size());
+            batch.forEach(item -> results.add(item * 2));
+            return results;
+        }, batchExePolicy)) {
+
+            int threads = 8;
+            int perThread = 1000;
+            CountDownLatch start = new CountDownLatch(1);
+            List<CompletableFuture<Void>> producers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int base = t * perThread;
+                producers.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    List<CompletableFuture<Integer>> futures = new ArrayList<>();
+                    for (int i = 0; i < perThread; i++) {
+                        futures.add(batcher.submit(base + i));
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        Assert.assertEquals(Integer.valueOf((base + i) * 2), futures.get(i).join());
+                    }
+                }));
+            }
+            start.countDown();
+            CompletableFuture.allOf(producers.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+            Assert.assertEquals(threads * perThread, items.get());
+            Assert.assertTrue(maxBatchSize.get() <= 50);
+            Assert.assertEquals(threads * perThread, batcher.getResult().getSucceededCount());
+        }
+    }
+
+    /**
+     * 不足一批时等待超时后执行
+     */
+    @Test
+    public void lingerFlush() throws Exception {
+        BatchExePolicy batchExePolicy = BatchExePolicy.builder()
+                .eachBatchNum(100)
+                .lingerDuration(Duration.ofMillis(20))
+                .build();
+
+        List<List<String>> batches = new ArrayList<>();
+        try (MicroBatcher<String, Void> batcher = MicroBatcher.ofConsumer(batches::add, batchExePolicy)) {
+            CompletableFuture<Void> first = batcher.submit("a");
+            CompletableFuture<Void> second = batcher.submit("b");
+
+            second.get(5, TimeUnit.SECONDS);
+            Assert.assertTrue(first.isDone());
+            Assert.assertEquals(1, batches.size());
+            Assert.assertEquals(2, batches.get(0).size());
+        }
+    }
+
+    /**
+     * 提交与关闭并发时，提交成功的元素都会结束，不会一直等待
+     */
+    @Test
+    public void submitRacingClose() throws Exception {
+        BatchExePolicy batchExePolicy = BatchExePolicy.builder()
+                .eachBatchNum(100)
+                .lingerDuration(Duration.ofHours(1))
+                .build();
+
+        for (int round = 0; round < 200; round++) {
+            MicroBatcher<Integer, Void> batcher = MicroBatcher.ofConsumer(batch -> {
+            }, batchExePolicy);
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            CountDownLatch start = new CountDownLatch(1);
+            Thread closer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                batcher.close();
+            });
+            closer.start();
+            start.countDown();
+            try {
+                for (int i = 0; i < 1000; i++) {
+                    futures.add(batcher.submit(i));
+                }
+            } catch (IllegalStateException e) {
+                // 已关闭
+            }
+            closer.join();
+            for (CompletableFuture<Void> future : futures) {
+                try {
+                    future.get(5, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    // 线程池已关闭时以异常结束
+                }
+            }
+        }
+    }
+
+    /**
+     * 批次抛出Error时批次中的元素都以异常结束
+     */
+    @Test
+    public void batchError() throws Exception {
+        BatchExePolicy batchExePolicy = BatchExePolicy.builder()
+                .eachBatchNum(2)
+                .build();
+
+        try (MicroBatcher<Integer, Void> batcher = MicroBatcher.ofConsumer(batch -> {
+            throw new LinkageError("boom");
+        }, batchExePolicy)) {
+            CompletableFuture<Void> first = batcher.submit(1);
+            CompletableFuture<Void> second = batcher.submit(2);
+            for (CompletableFuture<Void> future : Arrays.asList(first, second)) {
+                try {
+                    future.get(5, TimeUnit.SECONDS);
+                    Assert.fail();
+                } catch (ExecutionException e) {
+                    Assert.assertTrue(e.getCause() instanceof LinkageError);
+                }
+            }
+        }
+    }
+
+    /**
+     * 二分执行时只有失败的元素以异常结束，并交给死信处理
+     */
+    @Test
+    public void bisectFailedItem() throws Exception {
+        ConcurrentHashMap<Integer, Exception> deadLetters = new ConcurrentHashMap<>();
+        BatchExePolicy batchExePolicy = BatchExePolicy.builder()
+                .eachBatchNum(10)
+                .failPolicy(FailPolicy.BISECT)
+                .deadLetterSink((DeadLetterSink<Integer>) deadLetters::put)
+                .build();
+
+        try (MicroBatcher<Integer, String> batcher = MicroBatcher.of(batch -> {
+            if (batch.contains(7)) {
+                throw new IllegalStateException("bad item");
+            }
+            List<String> results = new ArrayList<>();
+            batch.forEach(item -> results.add("v" + item));
+            return results;
+        }, batchExePolicy)) {
+
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(batcher.submit(i));
+            }
+
+            for (int i = 0; i < 10; i++) {
+                if (i == 7) {
+                    try {
+                        futures.get(i).get(5, TimeUnit.SECONDS);
+                        Assert.fail();
+                    } catch (ExecutionException e) {
+                        Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+                    }
+                } else {
+                    Assert.assertEquals("v" + i, futures.get(i).get(5, TimeUnit.SECONDS));
+                }
+            }
+            Assert.assertEquals(1, deadLetters.size());
+            Assert.assertTrue(deadLetters.containsKey(7));
+        }
+    }
+}
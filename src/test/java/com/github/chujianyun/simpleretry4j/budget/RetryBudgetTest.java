@@ -0,0 +1,136 @@
+package com.github.chujianyun.simpleretry4j.budget;
+
+import com.github.chujianyun.simpleretry4j.RetryPolicy;
+import com.github.chujianyun.simpleretry4j.SimpleRetryUtil;
+import com.github.chujianyun.simpleretry4j.exception.BusinessException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 重试预算测试
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 16:45
+ */
+public class RetryBudgetTest {
+
+    /**
+     * 成功调用存入令牌，重试消耗令牌
+     */
+    @Test
+    public void depositAndWithdraw() {
+        RetryBudget retryBudget = RetryBudget.builder()
+                .depositRatio(0.5)
+                .minRetriesPerSecond(0)
+                .build();
+
+        Assert.assertFalse(retryBudget.tryWithdraw());
+        for (int i = 0; i < 4; i++) {
+            retryBudget.deposit();
+        }
+        Assert.assertEquals(2, retryBudget.getAvailableTokens());
+        Assert.assertTrue(retryBudget.tryWithdraw());
+        Assert.assertTrue(retryBudget.tryWithdraw());
+        Assert.assertFalse(retryBudget.tryWithdraw());
+    }
+
+    /**
+     * 令牌不超过上限，没有令牌时仍有每秒保底的重试次数
+     */
+    @Test
+    public void maxTokensAndFloor() {
+        RetryBudget retryBudget = RetryBudget.builder()
+                .depositRatio(1)
+                .maxTokens(3)
+                .minRetriesPerSecond(2)
+                .build();
+        for (int i = 0; i < 10; i++) {
+            retryBudget.deposit();
+        }
+
+        int retries = 0;
+        while (retryBudget.tryWithdraw()) {
+            retries++;
+        }
+        // 3个令牌加上当前这一秒的2次保底（跨秒时可能更多）
+        Assert.assertTrue(retries >= 5);
+        Assert.assertTrue(retries <= 7);
+    }
+
+    /**
+     * 多线程同时存入和取出，取出的令牌不超过存入的令牌，余额不超过上限也不会为负
+     */
+    @Test
+    public void concurrentWithdrawNeverOverdraws() throws Exception {
+        RetryBudget retryBudget = RetryBudget.builder()
+                .depositRatio(0.5)
+                .maxTokens(5)
+                .minRetriesPerSecond(0)
+                .build();
+        int threads = 8;
+        int rounds = 20000;
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < rounds; j++) {
+                    retryBudget.deposit();
+                    for (int k = 0; k < 3; k++) {
+                        if (retryBudget.tryWithdraw()) {
+                            granted.incrementAndGet();
+                        }
+                    }
+                    long available = retryBudget.getAvailableTokens();
+                    if (available < 0 || available > 5) {
+                        granted.set(Integer.MIN_VALUE);
+                    }
+                }
+            });
+            workers[i].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        Assert.assertTrue(granted.get() >= 0);
+        Assert.assertTrue(granted.get() <= threads * rounds / 2);
+        // 每两次存入取出一次，没有透支时剩下的令牌加上取出的令牌正好等于存入的令牌
+        Assert.assertEquals(threads * rounds / 2, granted.get() + retryBudget.getAvailableTokens());
+    }
+
+    /**
+     * 预算不足时重试提前结束，抛出最后一次的异常
+     */
+    @Test
+    public void retryStopsWhenBudgetExhausted() {
+        RetryBudget retryBudget = RetryBudget.builder()
+                .minRetriesPerSecond(0)
+                .build();
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxRetries(10)
+                .retryBudget(retryBudget)
+                .build();
+
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            SimpleRetryUtil.executeWithRetry(() -> {
+                attempts.incrementAndGet();
+                throw new BusinessException();
+            }, retryPolicy);
+            Assert.fail();
+        } catch (Exception e) {
+            Assert.assertTrue(e instanceof BusinessException);
+        }
+        Assert.assertEquals(1, attempts.get());
+    }
+}
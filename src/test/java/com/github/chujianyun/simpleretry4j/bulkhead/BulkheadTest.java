@@ -0,0 +1,136 @@
+package com.github.chujianyun.simpleretry4j.bulkhead;
+
+import com.github.chujianyun.simpleretry4j.RetryPolicy;
+import com.github.chujianyun.simpleretry4j.SimpleRetryUtil;
+import com.github.chujianyun.simpleretry4j.exception.BulkheadFullException;
+import com.github.chujianyun.simpleretry4j.metrics.RetryMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 舱壁测试
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 22:20
+ */
+public class BulkheadTest {
+
+    /**
+     * 并发数已满时快速拒绝，归还后可以再次获取
+     */
+    @Test
+    public void fixedLimit() throws Exception {
+        Bulkhead bulkhead = Bulkhead.builder().maxConcurrentCalls(2).build();
+
+        Assert.assertTrue(bulkhead.tryAcquire());
+        Assert.assertTrue(bulkhead.acquire());
+        Assert.assertFalse(bulkhead.tryAcquire());
+        Assert.assertFalse(bulkhead.acquire());
+
+        bulkhead.release(0);
+        Assert.assertEquals(1, bulkhead.getInFlight());
+        Assert.assertTrue(bulkhead.tryAcquire());
+    }
+
+    /**
+     * 等待其他调用归还许可
+     */
+    @Test
+    public void waitForPermit() throws Exception {
+        Bulkhead bulkhead = Bulkhead.builder()
+                .maxConcurrentCalls(1)
+                .maxWaitDuration(Duration.ofSeconds(2))
+                .build();
+        Assert.assertTrue(bulkhead.tryAcquire());
+
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> waiting = executorService.submit(bulkhead::acquire);
+            Thread.sleep(100);
+            Assert.assertFalse(waiting.isDone());
+            bulkhead.release(0);
+            Assert.assertTrue(waiting.get(1, TimeUnit.SECONDS));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * 舱壁已满时重试策略快速失败，拒绝计入指标
+     */
+    @Test
+    public void executeWithBulkheadFull() throws Exception {
+        RetryMetrics metrics = new RetryMetrics();
+        Bulkhead bulkhead = Bulkhead.builder().maxConcurrentCalls(1).build();
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxRetries(3)
+                .bulkhead(bulkhead)
+                .listener(metrics)
+                .build();
+
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> holder = executorService.submit(() -> SimpleRetryUtil.executeWithRetry(() -> {
+                entered.countDown();
+                release.await();
+                return 1;
+            }, retryPolicy));
+            Assert.assertTrue(entered.await(1, TimeUnit.SECONDS));
+
+            try {
+                SimpleRetryUtil.executeWithRetry(() -> 2, retryPolicy);
+                Assert.fail();
+            } catch (BulkheadFullException e) {
+                Assert.assertEquals(1, metrics.getBulkheadRejections());
+            }
+
+            release.countDown();
+            Assert.assertEquals(Integer.valueOf(1), holder.get(1, TimeUnit.SECONDS));
+            Assert.assertEquals(Integer.valueOf(2), SimpleRetryUtil.executeWithRetry(() -> 2, retryPolicy));
+            Assert.assertEquals(0, bulkhead.getInFlight());
+            Assert.assertEquals(2, metrics.getBulkheadWait().getCount());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * 自适应上限：耗时稳定且并发数接近上限时增加，耗时变长时减小
+     */
+    @Test
+    public void adaptiveLimit() {
+        Bulkhead bulkhead = Bulkhead.builder()
+                .maxConcurrentCalls(10)
+                .adaptiveLimit(5, 100)
+                .build();
+        long rtt = TimeUnit.MILLISECONDS.toNanos(10);
+
+        for (int i = 0; i < 50; i++) {
+            while (bulkhead.tryAcquire()) {
+                // 占满所有许可
+            }
+            int inFlight = bulkhead.getInFlight();
+            for (int j = 0; j < inFlight; j++) {
+                bulkhead.release(rtt);
+            }
+        }
+        int grown = bulkhead.getLimit();
+        Assert.assertTrue(grown > 10);
+
+        for (int i = 0; i < 50; i++) {
+            Assert.assertTrue(bulkhead.tryAcquire());
+            bulkhead.release(rtt * 4);
+        }
+        Assert.assertTrue(bulkhead.getLimit() < grown);
+        Assert.assertTrue(bulkhead.getLimit() >= 5);
+    }
+}
@@ -0,0 +1,174 @@
+package com.github.chujianyun.simpleretry4j.circuitbreaker;
+
+import com.github.chujianyun.simpleretry4j.RetryPolicy;
+import com.github.chujianyun.simpleretry4j.SimpleRetryUtil;
+import com.github.chujianyun.simpleretry4j.bulkhead.Bulkhead;
+import com.github.chujianyun.simpleretry4j.exception.BulkheadFullException;
+import com.github.chujianyun.simpleretry4j.exception.BusinessException;
+import com.github.chujianyun.simpleretry4j.exception.CircuitBreakerOpenException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 熔断器测试
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 15:50
+ */
+public class CircuitBreakerTest {
+
+    private CircuitBreaker circuitBreaker = CircuitBreaker.builder()
+            .slidingWindowSize(4)
+            .minimumNumberOfCalls(4)
+            .failureRateThreshold(50)
+            .waitDurationInOpenState(Duration.ofMillis(50))
+            .permittedCallsInHalfOpenState(2)
+            .build();
+
+    /**
+     * 关闭 -> 打开 -> 半开 -> 关闭
+     */
+    @Test
+    public void stateTransitions() throws Exception {
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onError();
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        circuitBreaker.onError();
+        Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        Assert.assertFalse(circuitBreaker.tryAcquirePermission());
+
+        Thread.sleep(60);
+        Assert.assertTrue(circuitBreaker.tryAcquirePermission());
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        Assert.assertTrue(circuitBreaker.tryAcquirePermission());
+        // 探测机会已用完
+        Assert.assertFalse(circuitBreaker.tryAcquirePermission());
+
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    /**
+     * 半开状态下探测失败重新打开
+     */
+    @Test
+    public void halfOpenFailureReopens() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            circuitBreaker.onError();
+        }
+        Thread.sleep(60);
+        Assert.assertTrue(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.onError();
+        Assert.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    /**
+     * 熔断器打开后重试停止，之后的调用不再执行操作
+     */
+    @Test
+    public void retryFailsFastWhenOpen() throws Exception {
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .delayDuration(Duration.ofMillis(1))
+                .circuitBreaker(circuitBreaker)
+                .build();
+
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            // 不限重试次数，依赖熔断器终止
+            SimpleRetryUtil.executeWithRetry(() -> {
+                attempts.incrementAndGet();
+                throw new BusinessException();
+            }, retryPolicy);
+            Assert.fail();
+        } catch (CircuitBreakerOpenException e) {
+            Assert.assertTrue(e.getCause() instanceof BusinessException);
+        }
+        Assert.assertEquals(4, attempts.get());
+
+        try {
+            SimpleRetryUtil.executeWithRetry(attempts::incrementAndGet, retryPolicy);
+            Assert.fail();
+        } catch (CircuitBreakerOpenException e) {
+            Assert.assertEquals(4, attempts.get());
+        }
+    }
+
+    /**
+     * 半开状态下舱壁已满或调用线程被中断时归还探测机会，熔断器不会被卡在半开状态
+     */
+    @Test
+    public void halfOpenProbeReleased() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            circuitBreaker.onError();
+        }
+        Thread.sleep(60);
+
+        Bulkhead bulkhead = Bulkhead.builder()
+                .maxConcurrentCalls(1)
+                .maxWaitDuration(Duration.ZERO)
+                .build();
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxRetries(0)
+                .circuitBreaker(circuitBreaker)
+                .bulkhead(bulkhead)
+                .build();
+
+        // 舱壁已满，两次探测机会都没有被占用
+        Assert.assertTrue(bulkhead.tryAcquire());
+        for (int i = 0; i < 2; i++) {
+            try {
+                SimpleRetryUtil.executeWithRetry(() -> 1, retryPolicy);
+                Assert.fail();
+            } catch (BulkheadFullException e) {
+                Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+            }
+        }
+        bulkhead.release(0);
+
+        // 调用线程被中断
+        for (int i = 0; i < 2; i++) {
+            try {
+                SimpleRetryUtil.executeWithRetry(() -> {
+                    throw new InterruptedException();
+                }, retryPolicy);
+                Assert.fail();
+            } catch (InterruptedException e) {
+                Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+            }
+        }
+
+        Assert.assertEquals(1, (int) SimpleRetryUtil.executeWithRetry(() -> 1, retryPolicy));
+        Assert.assertEquals(1, (int) SimpleRetryUtil.executeWithRetry(() -> 1, retryPolicy));
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    /**
+     * 探测调用全部发出后迟迟没有结果时重新放行探测调用
+     */
+    @Test
+    public void halfOpenProbeTimeout() throws Exception {
+        CircuitBreaker circuitBreaker = CircuitBreaker.builder()
+                .slidingWindowSize(1)
+                .minimumNumberOfCalls(1)
+                .waitDurationInOpenState(Duration.ZERO)
+                .permittedCallsInHalfOpenState(1)
+                .maxWaitDurationInHalfOpenState(Duration.ofMillis(50))
+                .build();
+        circuitBreaker.onError();
+        Assert.assertTrue(circuitBreaker.tryAcquirePermission());
+        Assert.assertFalse(circuitBreaker.tryAcquirePermission());
+        Assert.assertFalse(circuitBreaker.isCallPermitted());
+
+        Thread.sleep(60);
+        Assert.assertTrue(circuitBreaker.isCallPermitted());
+        Assert.assertTrue(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.onSuccess();
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+}
@@ -0,0 +1,125 @@
+package com.github.chujianyun.simpleretry4j.hedge;
+
+import com.github.chujianyun.simpleretry4j.RetryPolicy;
+import com.github.chujianyun.simpleretry4j.SimpleRetryUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 对冲请求测试
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 21:30
+ */
+public class HedgePolicyTest {
+
+    /**
+     * 第一次尝试很慢时由对冲的尝试返回结果，慢的尝试被中断
+     */
+    @Test
+    public void hedgeSlowAttempt() throws Exception {
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxRetries(0)
+                .hedgePolicy(HedgePolicy.builder().delay(Duration.ofMillis(50)).build())
+                .build();
+
+        AtomicInteger counter = new AtomicInteger();
+        CountDownLatch interrupted = new CountDownLatch(1);
+        long start = System.nanoTime();
+        Integer result = SimpleRetryUtil.executeWithRetry(() -> {
+            int attempt = counter.incrementAndGet();
+            if (attempt == 1) {
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+            }
+            return attempt;
+        }, retryPolicy);
+
+        Assert.assertEquals(Integer.valueOf(2), result);
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        Assert.assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+    }
+
+    /**
+     * 对冲的结果仍按终止条件判断，不满足条件的结果不会胜出
+     */
+    @Test
+    public void hedgeHonorsAbortConditions() throws Exception {
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxRetries(0)
+                .abortCondition(result -> (Integer) result > 0)
+                .hedgePolicy(HedgePolicy.builder().delay(Duration.ofMillis(50)).build())
+                .build();
+
+        AtomicInteger counter = new AtomicInteger();
+        Integer result = SimpleRetryUtil.executeWithRetry(() -> {
+            if (counter.incrementAndGet() == 1) {
+                Thread.sleep(300);
+                return 1;
+            }
+            return -1;
+        }, retryPolicy);
+
+        Assert.assertEquals(Integer.valueOf(1), result);
+        Assert.assertEquals(2, counter.get());
+    }
+
+    /**
+     * 异步对冲，对冲次数不超过上限，结束后取消所有尝试
+     */
+    @Test
+    public void asyncHedgeMaxHedges() throws Exception {
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxRetries(0)
+                .attemptTimeout(Duration.ofMillis(300))
+                .hedgePolicy(HedgePolicy.builder().delay(Duration.ofMillis(20)).maxHedges(2).build())
+                .build();
+
+        AtomicInteger counter = new AtomicInteger();
+        CompletableFuture<Integer> first = new CompletableFuture<>();
+        CompletableFuture<Integer> result = SimpleRetryUtil.executeWithRetryAsync(
+                () -> counter.incrementAndGet() == 1 ? first : new CompletableFuture<>(), retryPolicy);
+
+        try {
+            result.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        Assert.assertEquals(3, counter.get());
+        Assert.assertTrue(first.isCancelled());
+    }
+
+    /**
+     * 按分位数学习对冲延时
+     */
+    @Test
+    public void learnedDelay() {
+        HedgePolicy hedgePolicy = HedgePolicy.builder()
+                .delay(Duration.ofSeconds(1))
+                .percentile(95)
+                .window(100)
+                .build();
+        Assert.assertEquals(TimeUnit.SECONDS.toNanos(1), hedgePolicy.getDelayNanos());
+
+        long tenMillis = TimeUnit.MILLISECONDS.toNanos(10);
+        for (int i = 0; i < 100; i++) {
+            hedgePolicy.recordLatency(i < 90 ? tenMillis / 10 : tenMillis);
+        }
+        long delayNanos = hedgePolicy.getDelayNanos();
+        Assert.assertTrue(delayNanos > tenMillis * 15 / 16);
+        Assert.assertTrue(delayNanos <= tenMillis);
+    }
+}
@@ -0,0 +1,125 @@
+package com.github.chujianyun.simpleretry4j.metrics;
+
+import com.github.chujianyun.simpleretry4j.RetryPolicy;
+import com.github.chujianyun.simpleretry4j.SimpleRetryUtil;
+import com.github.chujianyun.simpleretry4j.exception.BusinessException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 指标统计测试
+ *
+ * @author: 明明如月 liuwangyangedu@163.com
+ * @date: 2026-10-18 19:05
+ */
+public class RetryMetricsTest {
+
+    /**
+     * 失败两次后成功
+     */
+    @Test
+    public void retryMetrics() throws Exception {
+        RetryMetrics metrics = new RetryMetrics();
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxRetries(3)
+                .listener(metrics)
+                .build();
+
+        AtomicInteger counter = new AtomicInteger();
+        Integer result = SimpleRetryUtil.executeWithRetry(() -> {
+            if (counter.incrementAndGet() < 3) {
+                throw new IllegalStateException("失败");
+            }
+            return counter.get();
+        }, retryPolicy);
+
+        Assert.assertEquals(Integer.valueOf(3), result);
+        Assert.assertEquals(3, metrics.getAttempts());
+        Assert.assertEquals(1, metrics.getAttemptSuccesses());
+        Assert.assertEquals(2, metrics.getAttemptFailures());
+        Assert.assertEquals(2, metrics.getRetries());
+        Assert.assertEquals(0, metrics.getExhausted());
+        Assert.assertEquals(3, metrics.getAttemptLatency().getCount());
+    }
+
+    /**
+     * 超过最大重试次数和遇到不需要重试的异常
+     */
+    @Test
+    public void exhaustedAndAborted() {
+        RetryMetrics metrics = new RetryMetrics();
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxRetries(2)
+                .abortException(BusinessException.class)
+                .listener(metrics)
+                .build();
+
+        try {
+            SimpleRetryUtil.executeWithRetry(() -> {
+                throw new IllegalStateException("失败");
+            }, retryPolicy);
+            Assert.fail();
+        } catch (Exception ignored) {
+        }
+        Assert.assertEquals(3, metrics.getAttempts());
+        Assert.assertEquals(1, metrics.getExhausted());
+
+        try {
+            SimpleRetryUtil.executeWithRetry(() -> {
+                throw new BusinessException();
+            }, retryPolicy);
+            Assert.fail();
+        } catch (Exception ignored) {
+        }
+        Assert.assertEquals(4, metrics.getAttempts());
+        Assert.assertEquals(1, metrics.getAbortsByException());
+    }
+
+    /**
+     * 异步重试的指标与同步一致
+     */
+    @Test
+    public void asyncRetryMetrics() throws Exception {
+        RetryMetrics metrics = new RetryMetrics();
+        RetryPolicy retryPolicy = RetryPolicy.builder()
+                .maxRetries(3)
+                .abortCondition(result -> (Integer) result >= 2)
+                .listener(metrics)
+                .build();
+
+        AtomicInteger counter = new AtomicInteger();
+        Integer result = SimpleRetryUtil.executeWithRetryAsync(
+                () -> CompletableFuture.completedFuture(counter.incrementAndGet()), retryPolicy).get();
+
+        Assert.assertEquals(Integer.valueOf(2), result);
+        Assert.assertEquals(2, metrics.getAttempts());
+        Assert.assertEquals(2, metrics.getAttemptSuccesses());
+        Assert.assertEquals(1, metrics.getRetries());
+        Assert.assertEquals(1, metrics.getAbortsByCondition());
+    }
+
+    /**
+     * 分位数的相对误差不超过1/16
+     */
+    @Test
+    public void histogramPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        Assert.assertEquals(1000, histogram.getCount());
+        Assert.assertEquals(1000, histogram.getMax());
+        Assert.assertEquals(500.5, histogram.getMean(), 0.001);
+        long p50 = histogram.getPercentile(50);
+        long p99 = histogram.getPercentile(99);
+        Assert.assertTrue(p50 >= 500 && p50 <= 500 + 500 / 16);
+        Assert.assertTrue(p99 >= 990 && p99 <= 1000);
+
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getPercentile(99));
+    }
+}